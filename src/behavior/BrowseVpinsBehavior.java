@@ -17,46 +17,122 @@ package com.osparks.vpin.bot.service.browseBehaviors;
 
 import com.osparks.vpin.bot.dto.OAuth2TokenResponse;
 import com.osparks.vpin.bot.dto.OpenAIGeneralResponse;
+import com.osparks.vpin.bot.models.BotFunction;
 import com.osparks.vpin.bot.models.BotModel;
 import com.osparks.vpin.bot.models.VpinModel;
 import com.osparks.vpin.bot.service.*;
+import com.osparks.vpin.bot.util.BrowseCursor;
 import com.osparks.vpin.bot.util.BrowseVpinPagination;
+import com.osparks.vpin.bot.util.StructuredResponseParser;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service for browsing Vpins.
+ * <p>
+ * Browsing is pipelined: while the LLM evaluates page N, up to
+ * {@code browse.prefetch.lookahead} further pages are fetched on a small
+ * bounded pool. Outstanding prefetches are cancelled as soon as a Vpin is
+ * selected. For a bot that replies to comments, the selected Vpin's comments
+ * are then fetched on the pool while the bot's earlier commands run.
  * 
  * @Author Christopher Leu (
  *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
  */
 @Service
 public class BrowseVpinsBehavior extends BrowseBehavior {
+    private static final Logger log = LoggerFactory.getLogger(BrowseVpinsBehavior.class);
 
     private final VpinService vpinService;
-    private final InterestService interestService;
     private final OpenAIService openAIService;
     private final VpinAuthenticationService vpinAuthenticationService;
+    private final StructuredResponseParser structuredResponseParser;
+    private final BrowseCursorStore browseCursorStore;
+    private final BrowsePagePolicy browsePagePolicy;
+    private final BotSeenVpinFilter botSeenVpinFilter;
+    private final ActionContextFactory actionContextFactory;
+    private final Timer selectedTimer;
+    private final Timer noneTimer;
+    private final DistributionSummary attemptsSummary;
+    private final ThreadPoolExecutor prefetchExecutor;
+    private final int lookahead;
+    private final boolean prefetchComments;
     @Autowired
     private SimpMessagingTemplate template;
 
     @Autowired
     public BrowseVpinsBehavior(BrowseVpinPagination browseVpinPagination, VpinService vpinService,
-                               InterestService interestService, OpenAIService openAIService,
-                               VpinAuthenticationService vpinAuthenticationService) {
+                               OpenAIService openAIService,
+                               VpinAuthenticationService vpinAuthenticationService,
+                               StructuredResponseParser structuredResponseParser,
+                               BrowseCursorStore browseCursorStore, BrowsePagePolicy browsePagePolicy,
+                               BotSeenVpinFilter botSeenVpinFilter, ActionContextFactory actionContextFactory,
+                               MeterRegistry meterRegistry,
+                               @Value("${browse.prefetch.threads:4}") int prefetchThreads,
+                               @Value("${browse.prefetch.queue-capacity:32}") int prefetchQueueCapacity,
+                               @Value("${browse.prefetch.lookahead:1}") int lookahead,
+                               @Value("${browse.prefetch.comments:true}") boolean prefetchComments) {
         super(browseVpinPagination);
         this.vpinService = vpinService;
-        this.interestService = interestService;
         this.openAIService = openAIService;
         this.vpinAuthenticationService = vpinAuthenticationService;
+        this.structuredResponseParser = structuredResponseParser;
+        this.browseCursorStore = browseCursorStore;
+        this.browsePagePolicy = browsePagePolicy;
+        this.botSeenVpinFilter = botSeenVpinFilter;
+        this.actionContextFactory = actionContextFactory;
+        this.selectedTimer = browseTimer(meterRegistry, "selected");
+        this.noneTimer = browseTimer(meterRegistry, "none");
+        this.attemptsSummary = DistributionSummary.builder("browse.attempts")
+                .description("Pages evaluated per browse")
+                .register(meterRegistry);
+        this.lookahead = lookahead;
+        this.prefetchComments = prefetchComments;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.prefetchExecutor = new ThreadPoolExecutor(prefetchThreads, prefetchThreads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(prefetchQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "browse-prefetch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.prefetchExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private static Timer browseTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("browse.latency")
+                .description("End-to-end browse latency")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
     }
 
     /**
-     * Browses Vpins based on the specified sort criteria and page size.
+     * Browses Vpins based on the specified sort criteria and page size, in the
+     * bot's running action.
      * 
      * @param botModel the bot model
      * @param sort the sort criteria
@@ -65,59 +141,174 @@ public class BrowseVpinsBehavior extends BrowseBehavior {
      */
     @Override
     public VpinModel browse(BotModel botModel, String sort, int pageSize) {
-        int maxAttempts = 15;
+        return actionContextFactory.withContext(botModel, context -> browse(context, sort, pageSize));
+    }
+
+    /**
+     * Browses Vpins based on the specified sort criteria and page size. Page
+     * fetches the catalog mirror cannot serve, comment prefetches and LLM
+     * comparisons are counted against the action.
+     *
+     * @param context the action context
+     * @param sort the sort criteria
+     * @param pageSize the number of Vpins per page
+     * @return the selected VpinModel
+     */
+    public VpinModel browse(ActionContext context, String sort, int pageSize) {
+        BotModel botModel = context.getBot();
+        int maxAttempts = browsePagePolicy.maxAttempts(botModel, pageSize);
         int attempts = 0;
+        long startedAt = System.nanoTime();
+        String interests = context.getInterests();
+        OAuth2TokenResponse tokenResponse = vpinAuthenticationService.getClientToken();
+        BrowseCursor cursor = browseCursorStore.get(botModel, sort);
+        Deque<PendingPage> pendingPages = new ArrayDeque<>();
+        // The cursor is an item offset; the page holding it depends on this
+        // browse's page size, and its items before the offset were evaluated.
+        int nextPage = cursor.page(pageSize);
+        int evaluatedOnPage = cursor.offset() - nextPage * pageSize;
+        VpinModel selected = null;
 
-        while (attempts < maxAttempts) {
-            List<VpinModel> vpinList = fetchVpins(sort, pageSize);
-            String vpinInfoString = convertVpinsToString(vpinList);
-            String interests = getInterests(botModel);
-            String vpinIndex = getOpenAIComparison(botModel, interests, vpinInfoString).toLowerCase();
-
-            if (!"none".equals(vpinIndex)) {
-                return fetchVpinFromSelectedIndex(vpinList, vpinIndex, vpinInfoString);
-            } else {
-                template.convertAndSend("/topic/botlogs", "Page " + browseVpinPagination.getCurrentPage() + " resulted in no interesting Vpins. Continuing to next page.\n");
-                browseVpinPagination.incrementPage();
+        try {
+            while (attempts < maxAttempts && selected == null) {
+                while (pendingPages.size() <= lookahead && pendingPages.size() < maxAttempts - attempts) {
+                    pendingPages.addLast(prefetchPage(context, tokenResponse, sort, nextPage++, pageSize));
+                }
+                PendingPage pendingPage = pendingPages.pollFirst();
+                List<VpinModel> vpinList = awaitPage(context, pendingPage, tokenResponse, sort, pageSize);
                 attempts++;
+                if (vpinList == null) {
+                    return null;
+                }
+                if (vpinList.isEmpty()) {
+                    cancelPages(pendingPages);
+                    browseCursorStore.rewind(botModel);
+                    nextPage = 0;
+                    evaluatedOnPage = 0;
+                    continue;
+                }
+                if (evaluatedOnPage > 0) {
+                    vpinList = vpinList.subList(Math.min(evaluatedOnPage, vpinList.size()), vpinList.size());
+                    evaluatedOnPage = 0;
+                }
+                int pageEnd = (pendingPage.page() + 1) * pageSize;
+                vpinList = botSeenVpinFilter.removeSeen(botModel, vpinList);
+                if (vpinList.isEmpty()) {
+                    browseCursorStore.recordMiss(botModel, pageEnd);
+                    continue;
+                }
+
+                CharSequence vpinInfoString = convertVpinsToString(vpinList);
+                context.recordRemoteCall(ActionContext.CALL_OPENAI);
+                int vpinIndex = getOpenAIComparison(botModel, interests, vpinInfoString);
+                // An index outside the page selects nothing and counts as a miss.
+                selected = vpinIndex == StructuredResponseParser.NO_SELECTION ? null
+                        : fetchVpinFromSelectedIndex(vpinList, vpinIndex);
+                browsePagePolicy.recordPage(botModel, vpinList.size(), selected != null);
+
+                if (selected != null) {
+                    browseCursorStore.recordHit(botModel);
+                    prefetchComments(context, selected);
+                } else {
+                    template.convertAndSend("/topic/botlogs", "Page " + pendingPage.page() + " resulted in no interesting Vpins. Continuing to next page.\n");
+                    browseCursorStore.recordMiss(botModel, pageEnd);
+                }
             }
+            return selected;
+        } finally {
+            cancelPages(pendingPages);
+            (selected != null ? selectedTimer : noneTimer).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            attemptsSummary.record(attempts);
         }
+    }
 
-        return attempts == 0 ? browseVpinPagination.getLastInteractedVpin() : null;
+    /**
+     * Starts fetching a page on the prefetch pool. When the pool is saturated
+     * the page is left to be fetched by the browsing thread.
+     */
+    private PendingPage prefetchPage(ActionContext context, OAuth2TokenResponse tokenResponse, String sort,
+            int page, int pageSize) {
+        try {
+            return new PendingPage(page, prefetchExecutor.submit(
+                    () -> vpinService.getVpins(tokenResponse, sort, page, pageSize, context)));
+        } catch (RejectedExecutionException e) {
+            return new PendingPage(page, null);
+        }
     }
 
     /**
-     * Fetches Vpins from the service.
-     * 
-     * @param sort the sort criteria
-     * @param pageSize the number of Vpins per page
-     * @return a list of VpinModel
+     * Waits for a prefetched page.
+     *
+     * @return the Vpins on the page, or null if the browsing thread was interrupted
      */
-    private List<VpinModel> fetchVpins(String sort, int pageSize) {
-        int page = browseVpinPagination.getCurrentPage();
-        OAuth2TokenResponse tokenResponse = vpinAuthenticationService.getClientToken();
-        return vpinService.getVpins(tokenResponse, sort, page, pageSize);
+    private List<VpinModel> awaitPage(ActionContext context, PendingPage pendingPage,
+            OAuth2TokenResponse tokenResponse, String sort, int pageSize) {
+        if (pendingPage.future() == null) {
+            return vpinService.getVpins(tokenResponse, sort, pendingPage.page(), pageSize, context);
+        }
+        try {
+            return pendingPage.future().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Error fetching page " + pendingPage.page(), e.getCause());
+        }
     }
 
     /**
-     * Converts a list of Vpins to a string representation.
-     * 
-     * @param vpinModelList the list of Vpins
-     * @return the string representation
+     * Warms the comment cache for the selected Vpin, so a reply finds its
+     * comments already loaded. Only bots with a REPLY function read comments;
+     * COMMENT writes a top-level comment without reading the thread.
      */
-    private String convertVpinsToString(List<VpinModel> vpinModelList) {
-        List<Map<String, Object>> vpinInfoList = vpinService.getVpinInfo(vpinModelList);
-        return vpinService.convertVpinInfoToText(vpinInfoList);
+    private void prefetchComments(ActionContext context, VpinModel vpin) {
+        Integer commentCount = vpin.getCommentCount();
+        if (!prefetchComments || vpin.getId() == null || (commentCount != null && commentCount == 0)
+                || !repliesToComments(context.getBot())) {
+            return;
+        }
+        try {
+            prefetchExecutor.execute(() -> vpinService.getComments(vpin.getId(), commentCount, context));
+        } catch (RejectedExecutionException e) {
+            log.debug("Prefetch pool saturated, skipping comment prefetch for Vpin {}", vpin.getId());
+        }
+    }
+
+    private static boolean repliesToComments(BotModel botModel) {
+        if (botModel.getFunctions() == null) {
+            return false;
+        }
+        for (BotFunction function : botModel.getFunctions()) {
+            if ("REPLY".equalsIgnoreCase(function.getFunction())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void cancelPages(Deque<PendingPage> pendingPages) {
+        for (PendingPage pendingPage : pendingPages) {
+            if (pendingPage.future() != null) {
+                pendingPage.future().cancel(true);
+            }
+        }
+        pendingPages.clear();
+    }
+
+    private record PendingPage(int page, Future<List<VpinModel>> future) {
     }
 
     /**
-     * Retrieves the interests of the bot.
+     * Converts a list of Vpins to a string representation.
      * 
-     * @param botModel the bot model
-     * @return the interests string
+     * @param vpinModelList the list of Vpins
+     * @return the string representation
      */
-    private String getInterests(BotModel botModel) {
-        return interestService.getInterests(botModel);
+    private CharSequence convertVpinsToString(List<VpinModel> vpinModelList) {
+        return vpinService.convertVpinsToText(vpinModelList);
     }
 
     /**
@@ -126,23 +317,28 @@ public class BrowseVpinsBehavior extends BrowseBehavior {
      * @param botModel the bot model
      * @param interests the bot's interests
      * @param vpinInfoString the Vpin information string
-     * @return the comparison result
+     * @return the selected index, or {@link StructuredResponseParser#NO_SELECTION} if nothing was
+     *         selected or the answer could not be read
      */
-    private String getOpenAIComparison(BotModel botModel, String interests, String vpinInfoString) {
+    private int getOpenAIComparison(BotModel botModel, String interests, CharSequence vpinInfoString) {
         OpenAIGeneralResponse response = openAIService.browseVpins(botModel, interests, vpinInfoString);
-        return response.getChoices().get(0).getMessage().getContent();
+        try {
+            return structuredResponseParser.parseIndex(response.getChoices().get(0).getMessage().getContent());
+        } catch (IllegalArgumentException e) {
+            // Treated like a declined page, so browsing moves on to the next one.
+            log.warn("Unreadable browse answer for bot {}: {}", botModel.getId(), e.getMessage());
+            return StructuredResponseParser.NO_SELECTION;
+        }
     }
 
     /**
      * Fetches the Vpin from the selected index.
      * 
      * @param vpinList the list of Vpins
-     * @param vpinIndex the index string
-     * @param vpinInfoString the Vpin information string
-     * @return the selected VpinModel
+     * @param vpinIndex the index selected by OpenAI
+     * @return the selected VpinModel, or null if the index is out of range
      */
-    private VpinModel fetchVpinFromSelectedIndex(List<VpinModel> vpinList, String vpinIndex, String vpinInfoString) {
-        int index = getIndexFromResponse(vpinIndex, vpinInfoString);
-        return index != -1 ? vpinList.get(index) : null;
+    private VpinModel fetchVpinFromSelectedIndex(List<VpinModel> vpinList, int vpinIndex) {
+        return vpinIndex >= 0 && vpinIndex < vpinList.size() ? vpinList.get(vpinIndex) : null;
     }
 }
\ No newline at end of file
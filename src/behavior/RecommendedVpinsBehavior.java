@@ -0,0 +1,263 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service.browseBehaviors;
+
+import com.osparks.vpin.bot.dto.OpenAIGeneralResponse;
+import com.osparks.vpin.bot.models.BotModel;
+import com.osparks.vpin.bot.models.InterestModel;
+import com.osparks.vpin.bot.models.TagModel;
+import com.osparks.vpin.bot.models.VpinModel;
+import com.osparks.vpin.bot.service.*;
+import com.osparks.vpin.bot.util.BrowseVpinPagination;
+import com.osparks.vpin.bot.util.StructuredResponseParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Browses from the Vpin API's top-20 recommendations for the bot's last
+ * interacted Vpin. Candidates the bot has not seen are scored locally against
+ * its interests and selected tags, and only the best few are shown to the LLM
+ * in a single call. Page browsing with {@link BrowseVpinsBehavior} is used
+ * only when there is no seed, nothing scores well, or the LLM declines.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+public class RecommendedVpinsBehavior extends BrowseBehavior {
+    private static final Logger log = LoggerFactory.getLogger(RecommendedVpinsBehavior.class);
+    private static final double TAG_MATCH_WEIGHT = 2.0;
+    private static final double TERM_MATCH_WEIGHT = 1.0;
+
+    private final VpinService vpinService;
+    private final OpenAIService openAIService;
+    private final ActionContextFactory actionContextFactory;
+    private final StructuredResponseParser structuredResponseParser;
+    private final BotSeenVpinFilter botSeenVpinFilter;
+    private final BrowseVpinsBehavior browseVpinsBehavior;
+    private final MeterRegistry meterRegistry;
+    private final double minScore;
+    private final int candidates;
+    @Autowired
+    private SimpMessagingTemplate template;
+
+    @Autowired
+    public RecommendedVpinsBehavior(BrowseVpinPagination browseVpinPagination, VpinService vpinService,
+                                    OpenAIService openAIService, ActionContextFactory actionContextFactory,
+                                    StructuredResponseParser structuredResponseParser,
+                                    BotSeenVpinFilter botSeenVpinFilter,
+                                    BrowseVpinsBehavior browseVpinsBehavior, MeterRegistry meterRegistry,
+                                    @Value("${browse.recommended.min-score:1.0}") double minScore,
+                                    @Value("${browse.recommended.candidates:5}") int candidates) {
+        super(browseVpinPagination);
+        this.vpinService = vpinService;
+        this.openAIService = openAIService;
+        this.actionContextFactory = actionContextFactory;
+        this.structuredResponseParser = structuredResponseParser;
+        this.botSeenVpinFilter = botSeenVpinFilter;
+        this.browseVpinsBehavior = browseVpinsBehavior;
+        this.meterRegistry = meterRegistry;
+        this.minScore = minScore;
+        this.candidates = candidates;
+    }
+
+    /**
+     * Selects a recommended Vpin, falling back to page browsing, in
+     * the bot's running action.
+     *
+     * @param botModel the bot model
+     * @param sort the sort criteria for the page browsing fallback
+     * @param pageSize the number of Vpins per page for the page browsing fallback
+     * @return the selected VpinModel
+     */
+    @Override
+    public VpinModel browse(BotModel botModel, String sort, int pageSize) {
+        return actionContextFactory.withContext(botModel, context -> browse(context, sort, pageSize));
+    }
+
+    /**
+     * Selects a recommended Vpin in the given action, falling back to page
+     * browsing.
+     *
+     * @param context the action context
+     * @param sort the sort criteria for the page browsing fallback
+     * @param pageSize the number of Vpins per page for the page browsing fallback
+     * @return the selected VpinModel
+     */
+    public VpinModel browse(ActionContext context, String sort, int pageSize) {
+        VpinModel recommended = selectRecommended(context);
+        return recommended != null ? recommended : browseVpinsBehavior.browse(context, sort, pageSize);
+    }
+
+    /**
+     * Selects a Vpin from the recommendations for the bot's last interacted
+     * Vpin, without falling back. The bot's token and interests are taken from
+     * the action context, so the commands that follow reuse them.
+     *
+     * @param context the action context
+     * @return the selected VpinModel, or null if no recommendation was chosen
+     */
+    public VpinModel selectRecommended(ActionContext context) {
+        BotModel botModel = context.getBot();
+        String seedVpinId = botModel.getLastInteractedVpinId();
+        if (seedVpinId == null || seedVpinId.isEmpty()) {
+            count("no_seed");
+            return null;
+        }
+
+        List<VpinModel> recommendations;
+        try {
+            String accessToken = context.getAccessToken();
+            context.recordRemoteCall(ActionContext.CALL_VPIN);
+            recommendations = vpinService.getRecommendedVpins(accessToken, seedVpinId);
+        } catch (Exception e) {
+            log.error("Error fetching recommended Vpins: ", e);
+            count("error");
+            return null;
+        }
+
+        List<VpinModel> shortlist = rerank(botModel, botSeenVpinFilter.removeSeen(botModel, recommendations));
+        if (shortlist.isEmpty()) {
+            count("low_score");
+            return null;
+        }
+
+        CharSequence vpinInfoString = vpinService.convertVpinsToText(shortlist);
+        context.recordRemoteCall(ActionContext.CALL_OPENAI);
+        OpenAIGeneralResponse response = openAIService.browseVpins(botModel, context.getInterests(), vpinInfoString);
+        int vpinIndex;
+        try {
+            vpinIndex = structuredResponseParser.parseIndex(response.getChoices().get(0).getMessage().getContent());
+        } catch (IllegalArgumentException e) {
+            // An unreadable answer is treated like a declined one, so the
+            // action falls through to page browsing.
+            log.warn("Unreadable recommendation answer for bot {}: {}", botModel.getId(), e.getMessage());
+            vpinIndex = StructuredResponseParser.NO_SELECTION;
+        }
+        if (vpinIndex < 0 || vpinIndex >= shortlist.size()) {
+            count("declined");
+            return null;
+        }
+
+        count("selected");
+        template.convertAndSend("/topic/botlogs", "Selected recommended Vpin: " + shortlist.get(vpinIndex).getId()
+                + " based on last Vpin interacted: " + seedVpinId + "\n");
+        return shortlist.get(vpinIndex);
+    }
+
+    /**
+     * Keeps the best scoring candidates, best first.
+     *
+     * @param botModel the bot model
+     * @param vpins the candidate Vpins
+     * @return at most {@code browse.recommended.candidates} Vpins scoring at least the minimum
+     */
+    private List<VpinModel> rerank(BotModel botModel, List<VpinModel> vpins) {
+        Set<String> selectedTags = new HashSet<>();
+        if (botModel.getTagsSelected() != null) {
+            for (TagModel tag : botModel.getTagsSelected()) {
+                selectedTags.add(tag.getTag().toLowerCase(Locale.ROOT));
+            }
+        }
+        Set<String> interestTerms = new HashSet<>();
+        if (botModel.getInterests() != null) {
+            for (InterestModel interest : botModel.getInterests()) {
+                addTerms(interest.getInterest(), interestTerms);
+            }
+        }
+
+        List<ScoredVpin> scored = new ArrayList<>(vpins.size());
+        for (VpinModel vpin : vpins) {
+            double score = score(vpin, selectedTags, interestTerms);
+            if (score >= minScore) {
+                scored.add(new ScoredVpin(vpin, score));
+            }
+        }
+        scored.sort(Comparator.comparingDouble(ScoredVpin::score).reversed());
+
+        List<VpinModel> shortlist = new ArrayList<>(Math.min(candidates, scored.size()));
+        for (int i = 0; i < scored.size() && i < candidates; i++) {
+            shortlist.add(scored.get(i).vpin());
+        }
+        return shortlist;
+    }
+
+    private static double score(VpinModel vpin, Set<String> selectedTags, Set<String> interestTerms) {
+        Set<String> vpinTerms = new HashSet<>();
+        addTerms(vpin.getTextContent(), vpinTerms);
+        double score = 0.0;
+        if (vpin.getTags() != null) {
+            for (TagModel tag : vpin.getTags()) {
+                String name = tag.getTag().toLowerCase(Locale.ROOT);
+                if (selectedTags.contains(name)) {
+                    score += TAG_MATCH_WEIGHT;
+                }
+                addTerms(name, vpinTerms);
+            }
+        }
+        for (String term : vpinTerms) {
+            if (interestTerms.contains(term)) {
+                score += TERM_MATCH_WEIGHT;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Splits text into lower-case terms of three or more letters or digits.
+     */
+    private static void addTerms(String text, Set<String> terms) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                if (i - start >= 3) {
+                    terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+    }
+
+    private void count(String outcome) {
+        Counter.builder("browse.recommended")
+                .description("Recommendation-driven browse attempts by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private record ScoredVpin(VpinModel vpin, double score) {
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service.browseBehaviors;
+
+import com.osparks.vpin.bot.dto.OpenAIGeneralResponse;
+import com.osparks.vpin.bot.models.BotModel;
+import com.osparks.vpin.bot.models.VpinModel;
+import com.osparks.vpin.bot.service.*;
+import com.osparks.vpin.bot.util.BrowseVpinPagination;
+import com.osparks.vpin.bot.util.StructuredResponseParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Browses by tag. The first time a bot browses in a session, the LLM picks one
+ * tag from the cached {@link TagTaxonomyCache}. The bot then evaluates the
+ * unseen Vpins carrying that tag for the rest of the session. The tag is
+ * dropped once it stops yielding Vpins or the LLM declines or answers
+ * unreadably, so the next browse picks a new one. The strategy is skipped when
+ * the action has already made {@code browse.tag-first.max-prior-llm-calls}
+ * LLM calls, for example for its recommendations. Page browsing with
+ * {@link BrowseVpinsBehavior} is the fallback.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+public class TagFirstBrowseBehavior extends BrowseBehavior {
+    private static final Logger log = LoggerFactory.getLogger(TagFirstBrowseBehavior.class);
+    private final VpinService vpinService;
+    private final OpenAIService openAIService;
+    private final ActionContextFactory actionContextFactory;
+    private final StructuredResponseParser structuredResponseParser;
+    private final TagTaxonomyCache tagTaxonomyCache;
+    private final BotSeenVpinFilter botSeenVpinFilter;
+    private final BrowseVpinsBehavior browseVpinsBehavior;
+    private final MeterRegistry meterRegistry;
+    private final int maxPriorLlmCalls;
+    private final ConcurrentHashMap<String, String> sessionTags = new ConcurrentHashMap<>();
+    @Autowired
+    private SimpMessagingTemplate template;
+
+    @Autowired
+    public TagFirstBrowseBehavior(BrowseVpinPagination browseVpinPagination, VpinService vpinService,
+                                  OpenAIService openAIService, ActionContextFactory actionContextFactory,
+                                  StructuredResponseParser structuredResponseParser,
+                                  TagTaxonomyCache tagTaxonomyCache, BotSeenVpinFilter botSeenVpinFilter,
+                                  BrowseVpinsBehavior browseVpinsBehavior, MeterRegistry meterRegistry,
+                                  @Value("${browse.tag-first.max-prior-llm-calls:1}") int maxPriorLlmCalls) {
+        super(browseVpinPagination);
+        this.vpinService = vpinService;
+        this.openAIService = openAIService;
+        this.actionContextFactory = actionContextFactory;
+        this.structuredResponseParser = structuredResponseParser;
+        this.tagTaxonomyCache = tagTaxonomyCache;
+        this.botSeenVpinFilter = botSeenVpinFilter;
+        this.browseVpinsBehavior = browseVpinsBehavior;
+        this.meterRegistry = meterRegistry;
+        this.maxPriorLlmCalls = maxPriorLlmCalls;
+    }
+
+    /**
+     * Selects a Vpin under the bot's session tag, falling back to page
+     * browsing, in the bot's running action.
+     *
+     * @param botModel the bot model
+     * @param sort the sort criteria for the page browsing fallback
+     * @param pageSize the number of Vpins to evaluate
+     * @return the selected VpinModel
+     */
+    @Override
+    public VpinModel browse(BotModel botModel, String sort, int pageSize) {
+        return actionContextFactory.withContext(botModel, context -> browse(context, sort, pageSize));
+    }
+
+    /**
+     * Selects a Vpin under the bot's session tag in the given action, falling
+     * back to page browsing.
+     *
+     * @param context the action context
+     * @param sort the sort criteria for the page browsing fallback
+     * @param pageSize the number of Vpins to evaluate
+     * @return the selected VpinModel
+     */
+    public VpinModel browse(ActionContext context, String sort, int pageSize) {
+        VpinModel selected = selectByTag(context, pageSize);
+        return selected != null ? selected : browseVpinsBehavior.browse(context, sort, pageSize);
+    }
+
+    /**
+     * Selects a Vpin under the bot's session tag, without falling back.
+     *
+     * @param context  the action context
+     * @param pageSize the number of Vpins to evaluate
+     * @return the selected VpinModel, or null if no Vpin was chosen
+     */
+    public VpinModel selectByTag(ActionContext context, int pageSize) {
+        BotModel botModel = context.getBot();
+        if (context.getRemoteCalls().getOrDefault(ActionContext.CALL_OPENAI, 0) >= maxPriorLlmCalls) {
+            count("budget");
+            return null;
+        }
+        String interests = context.getInterests();
+        String tag = sessionTags.get(botModel.getId());
+        if (tag == null) {
+            tag = chooseTag(context, interests);
+            if (tag == null) {
+                count("no_tag");
+                return null;
+            }
+            sessionTags.put(botModel.getId(), tag);
+            template.convertAndSend("/topic/botlogs", "Bot " + botModel.getId() + " is browsing tag: " + tag + "\n");
+        }
+
+        List<VpinModel> vpins = botSeenVpinFilter.removeSeen(botModel, vpinService.getVpinsByTags(tag));
+        if (vpins.isEmpty()) {
+            sessionTags.remove(botModel.getId());
+            count("exhausted");
+            return null;
+        }
+        if (vpins.size() > pageSize) {
+            vpins = vpins.subList(0, pageSize);
+        }
+
+        context.recordRemoteCall(ActionContext.CALL_OPENAI);
+        OpenAIGeneralResponse response = openAIService.browseVpins(botModel, interests,
+                vpinService.convertVpinsToText(vpins));
+        int vpinIndex;
+        try {
+            vpinIndex = structuredResponseParser.parseIndex(response.getChoices().get(0).getMessage().getContent());
+        } catch (IllegalArgumentException e) {
+            log.warn("Unreadable tag browse answer for bot {}: {}", botModel.getId(), e.getMessage());
+            vpinIndex = StructuredResponseParser.NO_SELECTION;
+        }
+        if (vpinIndex < 0 || vpinIndex >= vpins.size()) {
+            sessionTags.remove(botModel.getId());
+            count("declined");
+            return null;
+        }
+        count("selected");
+        return vpins.get(vpinIndex);
+    }
+
+    /**
+     * Ends the bot's session, so that its next browse picks a new tag.
+     *
+     * @param botId the bot ID
+     */
+    public void endSession(String botId) {
+        sessionTags.remove(botId);
+    }
+
+    private String chooseTag(ActionContext context, String interests) {
+        String tagsText = tagTaxonomyCache.getTagsText();
+        if (tagsText.isEmpty()) {
+            return null;
+        }
+        context.recordRemoteCall(ActionContext.CALL_OPENAI);
+        OpenAIGeneralResponse response = openAIService.browseTags(context.getBot(), interests, tagsText);
+        try {
+            return tagTaxonomyCache.canonicalize(
+                    structuredResponseParser.parseTag(response.getChoices().get(0).getMessage().getContent()));
+        } catch (IllegalArgumentException e) {
+            log.warn("Unreadable tag answer for bot {}: {}", context.getBot().getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void count(String outcome) {
+        Counter.builder("browse.tag_first")
+                .description("Tag-first browse attempts by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
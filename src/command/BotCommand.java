@@ -15,7 +15,6 @@
 
 package com.osparks.vpin.bot.service;
 
-import com.osparks.vpin.bot.model.BotModel;
 import com.osparks.vpin.bot.model.VpinModel;
 
 /**
@@ -23,7 +22,15 @@ import com.osparks.vpin.bot.model.VpinModel;
  *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
  */
 public interface BotCommand {
-    void execute(BotModel botModel, VpinModel vpinModel) throws Exception;
+    void execute(ActionContext context, VpinModel vpinModel) throws Exception;
     VpinModel getInteractedVpin();
     String getCommandName();
+
+    /**
+     * @return whether the command acts on a Vpin passed to it, and so is
+     *         skipped when the previous command produced none
+     */
+    default boolean requiresVpin() {
+        return true;
+    }
 }
\ No newline at end of file
@@ -15,11 +15,8 @@
 
 package com.osparks.vpin.bot.service;
 
-import com.osparks.vpin.bot.dao.BotRepository;
-import com.osparks.vpin.bot.dto.BotLoginResponse;
 import com.osparks.vpin.bot.exceptions.ActionExecuteException;
 import com.osparks.vpin.bot.model.BotModel;
-import com.osparks.vpin.bot.model.CommentedOnRelationship;
 import com.osparks.vpin.bot.model.VpinModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,49 +33,46 @@ import org.springframework.stereotype.Service;
 @Qualifier("COMMENT")
 public class CommentVpinCommand implements BotCommand {
     private static final Logger log = LoggerFactory.getLogger(CommentVpinCommand.class);
-    private final VpinAuthenticationService vpinAuthenticationService;
     private final VpinService vpinService;
-    private final BotRepository botRepo;
+    private final InteractionWriter interactionWriter;
     private VpinModel lastInteractedVpinModel;
     @Autowired
     private SimpMessagingTemplate template;
 
-    public CommentVpinCommand(VpinAuthenticationService vpinAuthenticationService, VpinService vpinService,
-            BotRepository botRepo) {
-        this.vpinAuthenticationService = vpinAuthenticationService;
+    public CommentVpinCommand(VpinService vpinService, InteractionWriter interactionWriter) {
         this.vpinService = vpinService;
-        this.botRepo = botRepo;
+        this.interactionWriter = interactionWriter;
     }
 
     @Override
-    public void execute(BotModel bot, VpinModel vpin) throws Exception {
-        BotLoginResponse loginResponse = vpinAuthenticationService.botLogin(bot);
-        String accessToken = loginResponse.getAccess_token();
-        String botComment = vpinService.getVpinReply(bot, vpin.getId());
+    public void execute(ActionContext context, VpinModel vpin) throws Exception {
+        context.rememberVpin(vpin);
+        String accessToken = context.getAccessToken();
+        context.recordRemoteCall(ActionContext.CALL_OPENAI);
+        String botComment = vpinService.getVpinReply(context.getBot(), context.getVpin(vpin.getId()),
+                context.getInterests());
 
         if (vpin.getId() != null && !vpin.getId().isEmpty()) {
-            performComment(bot, vpin, accessToken, botComment);
+            performComment(context, vpin, accessToken, botComment);
         }
     }
 
-    private void performComment(BotModel bot, VpinModel vpin, String accessToken, String botComment) {
+    private void performComment(ActionContext context, VpinModel vpin, String accessToken, String botComment) {
         try {
             template.convertAndSend("/topic/botlogs",
                     "Commenting on Vpin: " + vpin.getId() + " with comment: " + botComment);
+            context.recordRemoteCall(ActionContext.CALL_WRITE);
             vpinService.commentVpin(accessToken, vpin.getId(), botComment);
+            context.forgetComments(vpin.getId());
             lastInteractedVpinModel = vpin;
-            updateBotCommentedOnRelationships(bot);
+            updateBotCommentedOnRelationships(context.getBot());
         } catch (ActionExecuteException e) {
             log.error("Error commenting on the VpinModel: ", e);
         }
     }
 
     private void updateBotCommentedOnRelationships(BotModel bot) {
-        CommentedOnRelationship commentedRel = new CommentedOnRelationship();
-        commentedRel.setVpin(lastInteractedVpinModel);
-        bot.getCommentedOnRelationships().add(commentedRel);
-        bot.setLastInteractedVpinId(lastInteractedVpinModel.getId());
-        botRepo.save(bot);
+        interactionWriter.recordCommentedOn(bot, lastInteractedVpinModel);
     }
 
     @Override
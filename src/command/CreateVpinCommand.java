@@ -15,79 +15,176 @@
 
 package com.osparks.vpin.bot.service;
 
-import com.osparks.vpin.bot.dao.BotRepository;
-import com.osparks.vpin.bot.dto.BotLoginResponse;
-import com.osparks.vpin.bot.exceptions.ActionExecuteException;
+import com.osparks.vpin.bot.dto.VpinCreationResponse;
 import com.osparks.vpin.bot.model.BotModel;
-import com.osparks.vpin.bot.model.CommentedOnRelationship;
 import com.osparks.vpin.bot.model.VpinModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 /**
+ * Creates Vpins from the {@link CuratedVideoQueue}. The videos are submitted to
+ * the {@link VpinCreationPipeline} together, so their stages overlap, and the
+ * command waits for all of them before recording the created Vpins. Videos the
+ * {@link PostedVideoIndex} already knows as posted are skipped. A video still
+ * in the pipeline when the command stops waiting is recorded or released when
+ * its job finishes.
+ *
  * @Author Christopher Leu (
  *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
  */
 @Service
-@Qualifier("COMMENT")
-public class CommentVpinCommand implements BotCommand {
-    private static final Logger log = LoggerFactory.getLogger(CommentVpinCommand.class);
-    private final VpinAuthenticationService vpinAuthenticationService;
-    private final VpinService vpinService;
-    private final BotRepository botRepo;
+@Qualifier("CREATE_VPIN")
+public class CreateVpinCommand implements BotCommand {
+    private static final Logger log = LoggerFactory.getLogger(CreateVpinCommand.class);
+    private final VpinCreationPipeline vpinCreationPipeline;
+    private final CuratedVideoQueue curatedVideoQueue;
+    private final PostedVideoIndex postedVideoIndex;
+    private final InteractionWriter interactionWriter;
     private VpinModel lastInteractedVpinModel;
+    @Value("${vpin.creation.per-action:1}")
+    private int videosPerAction;
+    @Value("${vpin.creation.timeout-ms:120000}")
+    private long timeoutMillis;
     @Autowired
     private SimpMessagingTemplate template;
 
-    public CommentVpinCommand(VpinAuthenticationService vpinAuthenticationService, VpinService vpinService,
-            BotRepository botRepo) {
-        this.vpinAuthenticationService = vpinAuthenticationService;
-        this.vpinService = vpinService;
-        this.botRepo = botRepo;
+    public CreateVpinCommand(VpinCreationPipeline vpinCreationPipeline, CuratedVideoQueue curatedVideoQueue,
+            PostedVideoIndex postedVideoIndex, InteractionWriter interactionWriter) {
+        this.vpinCreationPipeline = vpinCreationPipeline;
+        this.curatedVideoQueue = curatedVideoQueue;
+        this.postedVideoIndex = postedVideoIndex;
+        this.interactionWriter = interactionWriter;
     }
 
     @Override
-    public void execute(BotModel bot, VpinModel vpin) throws Exception {
-        BotLoginResponse loginResponse = vpinAuthenticationService.botLogin(bot);
-        String accessToken = loginResponse.getAccess_token();
-        String botComment = vpinService.getVpinReply(bot, vpin.getId());
+    public void execute(ActionContext context, VpinModel vpin) throws Exception {
+        lastInteractedVpinModel = null;
+        List<String> videoUrls = new ArrayList<>();
+        while (videoUrls.size() < videosPerAction) {
+            String videoUrl = curatedVideoQueue.poll();
+            if (videoUrl == null) {
+                break;
+            }
+            if (postedVideoIndex.isPosted(videoUrl)) {
+                log.info("Skipping video that already has a Vpin: {}", videoUrl);
+                postedVideoIndex.release(videoUrl);
+                continue;
+            }
+            videoUrls.add(videoUrl);
+        }
+        if (videoUrls.isEmpty()) {
+            template.convertAndSend("/topic/botlogs", "No videos queued for Vpin creation\n");
+            return;
+        }
 
-        if (vpin.getId() != null && !vpin.getId().isEmpty()) {
-            performComment(bot, vpin, accessToken, botComment);
+        String accessToken = context.getAccessToken();
+        List<CompletableFuture<VpinCreationResponse.Vpin>> results = new ArrayList<>(videoUrls.size());
+        for (String videoUrl : videoUrls) {
+            context.recordRemoteCall(ActionContext.CALL_WRITE);
+            results.add(vpinCreationPipeline.submit(accessToken, videoUrl));
+        }
+
+        BotModel bot = context.getBot();
+        List<VpinModel> created = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (int i = 0; i < results.size(); i++) {
+            VpinCreationResponse.Vpin createdVpin = await(bot, results.get(i), videoUrls.get(i), deadline);
+            if (createdVpin != null) {
+                created.add(markCreated(createdVpin, videoUrls.get(i)));
+            }
+        }
+        if (!created.isEmpty()) {
+            updateBotCreatedRelationships(bot, created);
         }
     }
 
-    private void performComment(BotModel bot, VpinModel vpin, String accessToken, String botComment) {
+    private VpinCreationResponse.Vpin await(BotModel bot, CompletableFuture<VpinCreationResponse.Vpin> result,
+            String videoUrl, long deadline) throws InterruptedException {
+        try {
+            return result.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            releaseFailed(videoUrl, e.getCause());
+        } catch (TimeoutException e) {
+            log.warn("Timed out creating Vpin from video {}, recording it when it finishes", videoUrl);
+            result.whenComplete((createdVpin, error) -> finishLate(bot, videoUrl, createdVpin, error));
+        }
+        return null;
+    }
+
+    /**
+     * Completes a creation the command stopped waiting for, so its video is
+     * either marked posted with the Vpin recorded or released for retry.
+     */
+    private void finishLate(BotModel bot, String videoUrl, VpinCreationResponse.Vpin createdVpin, Throwable error) {
+        if (error != null) {
+            releaseFailed(videoUrl, error instanceof CompletionException ? error.getCause() : error);
+            return;
+        }
         try {
-            template.convertAndSend("/topic/botlogs",
-                    "Commenting on Vpin: " + vpin.getId() + " with comment: " + botComment);
-            vpinService.commentVpin(accessToken, vpin.getId(), botComment);
-            lastInteractedVpinModel = vpin;
-            updateBotCommentedOnRelationships(bot);
-        } catch (ActionExecuteException e) {
-            log.error("Error commenting on the VpinModel: ", e);
+            interactionWriter.recordCreated(bot, markCreated(createdVpin, videoUrl));
+        } catch (Exception e) {
+            log.error("Error recording Vpin created from video " + videoUrl + ": ", e);
         }
     }
 
-    private void updateBotCommentedOnRelationships(BotModel bot) {
-        CommentedOnRelationship commentedRel = new CommentedOnRelationship();
-        commentedRel.setVpin(lastInteractedVpinModel);
-        bot.getCommentedOnRelationships().add(commentedRel);
-        bot.setLastInteractedVpinId(lastInteractedVpinModel.getId());
-        botRepo.save(bot);
+    private VpinModel markCreated(VpinCreationResponse.Vpin createdVpin, String videoUrl) {
+        postedVideoIndex.markPosted(videoUrl);
+        postedVideoIndex.markPosted(createdVpin.getVideoUrl());
+        template.convertAndSend("/topic/botlogs",
+                "Created Vpin: " + createdVpin.getId() + " from video: " + videoUrl + "\n");
+        return toVpinModel(createdVpin);
+    }
+
+    private void releaseFailed(String videoUrl, Throwable cause) {
+        if (!(cause instanceof RejectedExecutionException) || !curatedVideoQueue.offer(videoUrl)) {
+            postedVideoIndex.release(videoUrl);
+        }
+        log.error("Error creating Vpin from video " + videoUrl + ": ", cause);
+    }
+
+    private static VpinModel toVpinModel(VpinCreationResponse.Vpin createdVpin) {
+        VpinModel vpinModel = new VpinModel();
+        vpinModel.setId(createdVpin.getId());
+        vpinModel.setTextContent(createdVpin.getTextContent());
+        vpinModel.setCreatedAt(createdVpin.getCreatedAt());
+        vpinModel.setVideoUrl(createdVpin.getVideoUrl());
+        vpinModel.setVideoPlatform(createdVpin.getVideoPlatform());
+        return vpinModel;
+    }
+
+    private void updateBotCreatedRelationships(BotModel bot, List<VpinModel> created) {
+        for (VpinModel vpinModel : created) {
+            interactionWriter.recordCreated(bot, vpinModel);
+        }
+        lastInteractedVpinModel = created.get(created.size() - 1);
     }
 
     @Override
     public String getCommandName() {
-        return "COMMENT";
+        return "CREATE_VPIN";
+    }
+
+    @Override
+    public boolean requiresVpin() {
+        return false;
     }
 
     @Override
     public VpinModel getInteractedVpin() {
         return lastInteractedVpinModel;
     }
-}
\ No newline at end of file
+}
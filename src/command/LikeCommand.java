@@ -15,11 +15,8 @@
 
 package com.osparks.vpin.bot.service;
 
-import com.osparks.vpin.bot.dao.BotRepository;
-import com.osparks.vpin.bot.dto.BotLoginResponse;
 import com.osparks.vpin.bot.exceptions.ActionExecuteException;
 import com.osparks.vpin.bot.model.BotModel;
-import com.osparks.vpin.bot.model.LikedRelationship;
 import com.osparks.vpin.bot.model.VpinModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,29 +31,26 @@ import org.springframework.stereotype.Service;
 @Qualifier("LIKE")
 public class LikeCommand implements BotCommand {
     private static final Logger log = LoggerFactory.getLogger(LikeCommand.class);
-    private final VpinAuthenticationService vpinAuthenticationService;
     private final VpinService vpinService;
-    private final BotRepository botRepo;
+    private final InteractionWriter interactionWriter;
     private VpinModel lastInteractedVpin;
 
-    public LikeCommand(VpinService vpinService, VpinAuthenticationService vpinAuthenticationService,
-            BotRepository botRepo) {
+    public LikeCommand(VpinService vpinService, InteractionWriter interactionWriter) {
         this.vpinService = vpinService;
-        this.vpinAuthenticationService = vpinAuthenticationService;
-        this.botRepo = botRepo;
+        this.interactionWriter = interactionWriter;
     }
 
     @Override
-    public void execute(BotModel bot, VpinModel vpin) throws Exception {
-        BotLoginResponse loginResponse = vpinAuthenticationService.botLogin(bot);
-        String accessToken = loginResponse.getAccess_token();
+    public void execute(ActionContext context, VpinModel vpin) throws Exception {
         if (vpin.getId() != null && !vpin.getId().isEmpty()) {
-            performLike(bot, vpin, accessToken);
+            performLike(context, vpin, context.getAccessToken());
         }
     }
 
-    private void performLike(BotModel bot, VpinModel vpin, String accessToken) {
+    private void performLike(ActionContext context, VpinModel vpin, String accessToken) {
+        BotModel bot = context.getBot();
         try {
+            context.recordRemoteCall(ActionContext.CALL_WRITE);
             vpinService.likeVpin(accessToken, vpin.getId());
             lastInteractedVpin = vpin;
             updateBotLikedRelationships(bot);
@@ -66,11 +60,7 @@ public class LikeCommand implements BotCommand {
     }
 
     private void updateBotLikedRelationships(BotModel bot) {
-        LikedRelationship likedRelationshipRel = new LikedRelationship();
-        likedRelationshipRel.setVpin(lastInteractedVpin);
-        bot.getLikedRelationships().add(likedRelationshipRel);
-        bot.setLastInteractedVpinId(lastInteractedVpin.getId());
-        botRepo.save(bot);
+        interactionWriter.recordLiked(bot, lastInteractedVpin);
     }
 
     @Override
@@ -15,14 +15,9 @@
 
 package com.osparks.vpin.bot.service;
 
-import com.osparks.vpin.bot.dao.BotRepository;
-import com.osparks.vpin.bot.dto.BotLoginResponse;
 import com.osparks.vpin.bot.dto.VpinCommentResponse;
 import com.osparks.vpin.bot.exceptions.ActionExecuteException;
 import com.osparks.vpin.bot.model.BotModel;
-import com.osparks.vpin.bot.model.CommentModel;
-import com.osparks.vpin.bot.model.InteractedWCommentUnderRelationship;
-import com.osparks.vpin.bot.model.RepliedToRelationship;
 import com.osparks.vpin.bot.model.VpinModel;
 import com.osparks.vpin.bot.util.IndexCommentPair;
 import org.slf4j.Logger;
@@ -43,84 +38,79 @@ import org.springframework.stereotype.Service;
 @Qualifier("REPLY")
 public class ReplyCommentCommand implements BotCommand {
     private static final Logger log = LoggerFactory.getLogger(ReplyCommentCommand.class);
-    private final VpinAuthenticationService vpinAuthenticationService;
     private final VpinService vpinService;
-    private final BotRepository botRepo;
+    private final InteractionWriter interactionWriter;
     private VpinModel lastInteractedVpinModel;
     @Value("REPLY")
     private String actionType;
     @Autowired
     private SimpMessagingTemplate template;
 
-    public ReplyCommentCommand(VpinAuthenticationService vpinAuthenticationService, VpinService vpinService,
-            BotRepository botRepo) {
-        this.vpinAuthenticationService = vpinAuthenticationService;
+    public ReplyCommentCommand(VpinService vpinService, InteractionWriter interactionWriter) {
         this.vpinService = vpinService;
-        this.botRepo = botRepo;
+        this.interactionWriter = interactionWriter;
     }
 
     /**
      * Executes the reply command on a Vpin.
      *
-     * @param bot  the bot model
-     * @param vpin the Vpin model
+     * @param context the action context
+     * @param vpin    the Vpin model
      * @throws Exception if an error occurs during execution
      */
     @Override
-    public void execute(BotModel bot, VpinModel vpin) throws Exception {
-        BotLoginResponse loginResponse = vpinAuthenticationService.botLogin(bot);
-        String accessToken = loginResponse.getAccess_token();
-        VpinCommentResponse vpinComments = vpinService.getVpinComments(vpin);
+    public void execute(ActionContext context, VpinModel vpin) throws Exception {
+        context.rememberVpin(vpin);
+        String accessToken = context.getAccessToken();
+        VpinCommentResponse vpinComments = context.getComments(vpin);
 
         if (vpinComments == null) {
-            commentOnEmptyVpin(bot, vpin, accessToken);
+            commentOnEmptyVpin(context, vpin, accessToken);
         } else {
-            replyToExistingComments(bot, vpin, accessToken, vpinComments);
+            replyToExistingComments(context, vpin, accessToken, vpinComments);
         }
     }
 
-    private void commentOnEmptyVpin(BotModel bot, VpinModel vpin, String accessToken) throws Exception {
-        String vpinReply = vpinService.getVpinReply(bot, vpin.getId());
+    private void commentOnEmptyVpin(ActionContext context, VpinModel vpin, String accessToken) throws Exception {
+        BotModel bot = context.getBot();
+        context.recordRemoteCall(ActionContext.CALL_OPENAI);
+        String vpinReply = vpinService.getVpinReply(bot, context.getVpin(vpin.getId()), context.getInterests());
+        context.recordRemoteCall(ActionContext.CALL_WRITE);
         vpinService.commentVpin(accessToken, vpin.getId(), vpinReply);
+        context.forgetComments(vpin.getId());
         actionType = "COMMENT";
-        CommentedOnRelationship commentedRel = new CommentedOnRelationship();
-        commentedRel.setVpin(vpin);
-        bot.getCommentedOnRelationships().add(commentedRel);
-        botRepo.save(bot);
+        lastInteractedVpinModel = vpin;
+        interactionWriter.recordCommentedOn(bot, vpin);
         template.convertAndSend("/topic/botlogs",
                 "Commenting on Vpin: " + vpin.getId() + ", since Vpin has no comments: " + vpin.getCommentCount());
     }
 
-    private void replyToExistingComments(BotModel bot, VpinModel vpin, String accessToken,
+    private void replyToExistingComments(ActionContext context, VpinModel vpin, String accessToken,
             VpinCommentResponse vpinComments) {
         try {
-            IndexCommentPair commentReplyPair = vpinService.getReplyToVpinComment(bot, vpinComments);
+            context.recordRemoteCall(ActionContext.CALL_OPENAI);
+            IndexCommentPair commentReplyPair = vpinService.getReplyToVpinComment(context.getBot(), vpinComments,
+                    context.getInterests());
             String commentIdStr = vpinService.getCommentId(commentReplyPair.getIndex(), vpinComments);
             String commentReply = commentReplyPair.getComment();
 
+            context.recordRemoteCall(ActionContext.CALL_WRITE);
             vpinService.replyComment(accessToken, commentIdStr, commentReply);
+            context.forgetComments(vpin.getId());
 
-            updateBotReplyRelationships(bot, vpin, commentIdStr);
+            updateBotReplyRelationships(context.getBot(), vpin, commentIdStr);
         } catch (ActionExecuteException e) {
             log.error("Error replying to the comment: ", e);
+        } catch (IllegalArgumentException e) {
+            log.warn("Unreadable reply answer for bot {}, not replying: {}", context.getBot().getId(),
+                    e.getMessage());
         }
     }
 
     private void updateBotReplyRelationships(BotModel bot, VpinModel vpin, String commentIdStr) {
         lastInteractedVpinModel = vpin;
-        InteractedWCommentUnderRelationship commentInteraction = new InteractedWCommentUnderRelationship();
-        commentInteraction.setVpin(vpin);
-        bot.getInteractedWithCommentUnderRelationships().add(commentInteraction);
-
-        RepliedToRelationship repliedRel = new RepliedToRelationship();
-        CommentModel commentModel = new CommentModel();
-        commentModel.setId(commentIdStr);
-        repliedRel.setComment(commentModel);
-
         template.convertAndSend("/topic/botlogs", "Successfully replied to comment under Vpin.\n");
-        bot.getRepliedToRelationships().add(repliedRel);
-        bot.setLastInteractedVpinId(vpin.getId());
-        botRepo.save(bot);
+        interactionWriter.recordRepliedTo(bot, vpin, commentIdStr);
     }
 
     @Override
@@ -15,15 +15,20 @@
 
 package com.osparks.vpin.bot.controller;
 
+import com.osparks.vpin.bot.dao.BotSummaryRepository;
 import com.osparks.vpin.bot.dto.BotDashFormData;
+import com.osparks.vpin.bot.dto.BotSummary;
+import com.osparks.vpin.bot.dto.BotSummaryPage;
 import com.osparks.vpin.bot.dto.GenerateRandBotResponse;
 import com.osparks.vpin.bot.exceptions.ActionExecuteException;
 import com.osparks.vpin.bot.exceptions.OpenAIAPIException;
 import com.osparks.vpin.bot.model.BotModel;
+import com.osparks.vpin.bot.service.ActiveBotService;
+import com.osparks.vpin.bot.service.BotActivityService;
 import com.osparks.vpin.bot.service.BotCreateService;
 import com.osparks.vpin.bot.service.BotService;
-import com.osparks.vpin.bot.repository.BotRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -32,7 +37,10 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * BotController handles operations related to bots, such as creation, listing,
@@ -44,27 +52,40 @@ import java.util.List;
 @Controller
 @RequestMapping("/bots")
 public class BotController {
+    private static final int MAX_PAGE_SIZE = 500;
     private final BotCreateService botCreateService;
-    private final BotRepository botRepo;
+    private final BotSummaryRepository botSummaryRepo;
     private final BotService botService;
+    private final BotActivityService botActivityService;
+    private final ActiveBotService activeBotService;
+    @Value("${bots.dashboard.page-size:100}")
+    private int dashboardPageSize;
 
     @Autowired
-    public BotController(BotCreateService botCreateService, BotRepository botRepo, BotService botService) {
+    public BotController(BotCreateService botCreateService, BotSummaryRepository botSummaryRepo,
+            BotService botService, BotActivityService botActivityService, ActiveBotService activeBotService) {
         this.botCreateService = botCreateService;
-        this.botRepo = botRepo;
+        this.botSummaryRepo = botSummaryRepo;
         this.botService = botService;
+        this.botActivityService = botActivityService;
+        this.activeBotService = activeBotService;
     }
 
     /**
-     * Displays the bot dashboard.
+     * Displays one page of the bot dashboard.
      *
      * @param model the model to pass attributes to the view
+     * @param page  the zero-based page number
      * @return the name of the view to render
      */
     @GetMapping("/statusManager")
-    public String botDashboard(Model model) {
-        List<BotModel> bots = botRepo.findAll();
+    public String botDashboard(Model model, @RequestParam(value = "page", defaultValue = "0") int page) {
+        int pageNumber = Math.max(0, page);
+        List<BotSummary> bots = botSummaryRepo.findPage(pageNumber, dashboardPageSize);
         model.addAttribute("bots", bots);
+        model.addAttribute("page", pageNumber);
+        model.addAttribute("pageSize", dashboardPageSize);
+        model.addAttribute("totalBots", botSummaryRepo.count());
         return "statusManager";
     }
 
@@ -99,14 +120,50 @@ public class BotController {
     }
 
     /**
-     * Lists all bots.
+     * Lists one page of bots, by page number or after the ID of the last bot
+     * on the previous page.
      *
-     * @return a ResponseEntity containing a list of all bots
+     * @param page  the zero-based page number, ignored when {@code after} is given
+     * @param size  the page size
+     * @param after the ID of the last bot on the previous page
+     * @return a ResponseEntity containing the page of bot summaries
      */
     @GetMapping(value = "/list", produces = "application/json")
-    public @ResponseBody ResponseEntity<List<BotModel>> listBots() {
-        List<BotModel> botModels = botRepo.findAll();
-        return ResponseEntity.ok(botModels);
+    public @ResponseBody ResponseEntity<BotSummaryPage> listBots(
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "50") int size,
+            @RequestParam(value = "after", required = false) String after) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<BotSummary> bots = after != null
+                ? botSummaryRepo.findAfter(after, pageSize)
+                : botSummaryRepo.findPage(Math.max(0, page), pageSize);
+        String nextCursor = bots.size() == pageSize ? bots.get(bots.size() - 1).getId() : null;
+        return ResponseEntity.ok(new BotSummaryPage(bots, after != null ? -1 : Math.max(0, page), pageSize,
+                botSummaryRepo.count(), nextCursor));
+    }
+
+    /**
+     * Counts the bots scheduled for each minute of the week, for capacity planning.
+     *
+     * @return a ResponseEntity containing 10,080 counts, the first for Monday 00:00
+     */
+    @GetMapping(value = "/activity/histogram", produces = "application/json")
+    public @ResponseBody ResponseEntity<int[]> activityHistogram() {
+        return ResponseEntity.ok(botActivityService.histogram());
+    }
+
+    /**
+     * Lists the bots whose intervals are running now and those starting soon.
+     *
+     * @param lookaheadMinutes how far ahead to look for starting bots
+     * @return a ResponseEntity containing the "active" and "upcoming" bot IDs
+     */
+    @GetMapping(value = "/activity/active", produces = "application/json")
+    public @ResponseBody ResponseEntity<Map<String, Set<String>>> activeBots(
+            @RequestParam(value = "lookaheadMinutes", defaultValue = "15") int lookaheadMinutes) {
+        LocalDateTime now = LocalDateTime.now();
+        return ResponseEntity.ok(Map.of("active", activeBotService.findActiveBotIds(now),
+                "upcoming", activeBotService.findUpcomingBotIds(now, Math.max(0, lookaheadMinutes))));
     }
 
     /**
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.controller;
+
+import com.osparks.vpin.bot.service.VideoFeedIngestService;
+import com.osparks.vpin.bot.service.VideoFeedIngestService.Format;
+import com.osparks.vpin.bot.service.VideoFeedIngestService.IngestResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * VideoFeedController accepts bulk lists of video URLs for Vpin creation.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@RestController
+@RequestMapping("/videos/feed")
+public class VideoFeedController {
+
+    private final VideoFeedIngestService videoFeedIngestService;
+
+    @Autowired
+    public VideoFeedController(VideoFeedIngestService videoFeedIngestService) {
+        this.videoFeedIngestService = videoFeedIngestService;
+    }
+
+    /**
+     * Streams an NDJSON or CSV list of video URLs into the creation queue.
+     *
+     * @param body        the list
+     * @param format      the list format, ndjson or csv; taken from the content type if omitted
+     * @param contentType the request content type
+     * @return the counts of accepted, duplicate, invalid and rejected entries
+     * @throws IOException if the body cannot be read
+     */
+    @PostMapping
+    public ResponseEntity<IngestResult> ingest(InputStream body,
+            @RequestParam(value = "format", required = false) String format,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType)
+            throws IOException {
+        Format detected = Format.detect(format != null ? format : contentType);
+        if (detected == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try (Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            return ResponseEntity.ok(videoFeedIngestService.ingest(reader, detected, "http"));
+        }
+    }
+}
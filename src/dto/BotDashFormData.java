@@ -225,6 +225,7 @@ public class BotDashFormData {
         private String startTime;
         private String endTime;
         private int actionsPerHour;
+        private List<String> daysOfWeek;
 
         public String getStartTime() {
             return startTime;
@@ -249,5 +250,13 @@ public class BotDashFormData {
         public void setActionsPerHour(int actionsPerHour) {
             this.actionsPerHour = actionsPerHour;
         }
+
+        public List<String> getDaysOfWeek() {
+            return daysOfWeek;
+        }
+
+        public void setDaysOfWeek(List<String> daysOfWeek) {
+            this.daysOfWeek = daysOfWeek;
+        }
     }
 }
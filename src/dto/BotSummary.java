@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * The fields of a bot shown on the dashboard and by {@code /bots/list},
+ * read without the bot's relationships.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+public class BotSummary {
+    private final String id;
+    private final String username;
+    private final String nickname;
+    private final String name;
+    private final String gender;
+    private final String location;
+    private final Integer age;
+    private final String occupation;
+    private final Boolean isActive;
+    private final LocalDateTime createDate;
+    private final String lastInteractedVpinId;
+
+    public BotSummary(String id, String username, String nickname, String name, String gender, String location,
+            Integer age, String occupation, Boolean isActive, LocalDateTime createDate,
+            String lastInteractedVpinId) {
+        this.id = id;
+        this.username = username;
+        this.nickname = nickname;
+        this.name = name;
+        this.gender = gender;
+        this.location = location;
+        this.age = age;
+        this.occupation = occupation;
+        this.isActive = isActive;
+        this.createDate = createDate;
+        this.lastInteractedVpinId = lastInteractedVpinId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getNickname() {
+        return nickname;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getGender() {
+        return gender;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public Integer getAge() {
+        return age;
+    }
+
+    public String getOccupation() {
+        return occupation;
+    }
+
+    public Boolean getActive() {
+        return isActive;
+    }
+
+    public LocalDateTime getCreateDate() {
+        return createDate;
+    }
+
+    public String getLastInteractedVpinId() {
+        return lastInteractedVpinId;
+    }
+
+    public String getStatus() {
+        return Boolean.TRUE.equals(isActive) ? "Online" : "Offline";
+    }
+}
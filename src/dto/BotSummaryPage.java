@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.dto;
+
+import java.util.List;
+
+/**
+ * One page of {@link BotSummary}s, ordered by bot ID.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+public class BotSummaryPage {
+    private final List<BotSummary> bots;
+    private final int page;
+    private final int size;
+    private final long total;
+    private final String nextCursor;
+
+    public BotSummaryPage(List<BotSummary> bots, int page, int size, long total, String nextCursor) {
+        this.bots = bots;
+        this.page = page;
+        this.size = size;
+        this.total = total;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<BotSummary> getBots() {
+        return bots;
+    }
+
+    /**
+     * @return the page number, or -1 for a page fetched by cursor
+     */
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the ID to pass as {@code after} for the next page, or null on the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
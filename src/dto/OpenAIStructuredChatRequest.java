@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.osparks.vpin.bot.util.StructuredResponseType;
+
+import java.util.Map;
+
+/**
+ * Chat request that asks OpenAI to answer with a JSON object matching the
+ * schema of the given {@link StructuredResponseType}.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+public class OpenAIStructuredChatRequest extends OpenAIChatRequest {
+    @JsonProperty("response_format")
+    private final Map<String, Object> responseFormat;
+
+    public OpenAIStructuredChatRequest(String model, String prompt, int maxTokens, float temperature,
+            StructuredResponseType responseType) {
+        super(model, prompt, maxTokens, temperature);
+        this.responseFormat = responseType.getResponseFormat();
+    }
+
+    /**
+     * @return the response_format block sent to OpenAI.
+     */
+    public Map<String, Object> getResponseFormat() {
+        return responseFormat;
+    }
+}
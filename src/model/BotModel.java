@@ -52,6 +52,9 @@ public class BotModel {
     private LocalDateTime createDate;
     private Boolean isActive;
     private String lastInteractedVpinId;
+    private String browseSort;
+    private Integer browseOffset;
+    private Integer browseNoneStreak;
 
     @Relationship(type = "HAS_INTERESTS", direction = Relationship.Direction.OUTGOING)
     private List<InterestModel> interests;
@@ -119,10 +122,14 @@ public class BotModel {
         String id = UUID.randomUUID().toString();
         List<VpinModel> vpinsInteracted;
         List<IntervalModel> intervals = dto.getIntervals().stream()
-                .map(intervalDTO -> new IntervalModel(
-                        LocalTime.parse(intervalDTO.getStartTime()),
-                        LocalTime.parse(intervalDTO.getEndTime()),
-                        intervalDTO.getActionsPerHour()))
+                .map(intervalDTO -> {
+                    IntervalModel interval = new IntervalModel(
+                            LocalTime.parse(intervalDTO.getStartTime()),
+                            LocalTime.parse(intervalDTO.getEndTime()),
+                            intervalDTO.getActionsPerHour());
+                    interval.setDaysOfWeek(intervalDTO.getDaysOfWeek());
+                    return interval;
+                })
                 .collect(Collectors.toList());
         return new BotModel(id, dto.getName(), dto.getAge(), dto.getGender(), dto.getLocation(),
                 dto.getOccupation(), LocalDateTime.now(), dto.getInterests(), dto.getUsername(), null,
@@ -279,6 +286,30 @@ public class BotModel {
         this.lastInteractedVpinId = lastInteractedVpinId;
     }
 
+    public String getBrowseSort() {
+        return browseSort;
+    }
+
+    public void setBrowseSort(String browseSort) {
+        this.browseSort = browseSort;
+    }
+
+    public Integer getBrowseOffset() {
+        return browseOffset;
+    }
+
+    public void setBrowseOffset(Integer browseOffset) {
+        this.browseOffset = browseOffset;
+    }
+
+    public Integer getBrowseNoneStreak() {
+        return browseNoneStreak;
+    }
+
+    public void setBrowseNoneStreak(Integer browseNoneStreak) {
+        this.browseNoneStreak = browseNoneStreak;
+    }
+
     public List<LikedRelationship> getLikedRelationships() {
         return likedRelationships;
     }
@@ -19,6 +19,7 @@ import org.springframework.data.neo4j.core.schema.Id;
 import org.springframework.data.neo4j.core.schema.Node;
 
 import java.time.LocalTime;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -32,6 +33,7 @@ public class IntervalModel {
     private LocalTime startTime;
     private LocalTime endTime;
     private int actionsPerHour;
+    private List<String> daysOfWeek;
 
     public IntervalModel(LocalTime startTime, LocalTime endTime, int actionsPerHour) {
         this.id = UUID.randomUUID().toString();
@@ -71,4 +73,16 @@ public class IntervalModel {
     public void setActionsPerHour(int actionsPerHour) {
         this.actionsPerHour = actionsPerHour;
     }
+
+    /**
+     * @return the names of the days the interval starts on, such as "MONDAY";
+     *         null or empty means every day
+     */
+    public List<String> getDaysOfWeek() {
+        return daysOfWeek;
+    }
+
+    public void setDaysOfWeek(List<String> daysOfWeek) {
+        this.daysOfWeek = daysOfWeek;
+    }
 }
@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.dao;
+
+import com.osparks.vpin.bot.models.IntervalModel;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads every bot's activity intervals as plain rows, without loading the
+ * bots, to rebuild the {@link com.osparks.vpin.bot.util.BotIntervalIndex}.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Repository
+public class BotIntervalRepository {
+    static final String FIND_ALL_BY_BOT = "MATCH (b:Bot)-[:HAS_INTERVALS]->(i:Interval) "
+            + "RETURN b.id AS botId, i.id AS id, i.startTime AS startTime, i.endTime AS endTime, "
+            + "i.actionsPerHour AS actionsPerHour, i.daysOfWeek AS daysOfWeek";
+
+    private final Neo4jClient neo4jClient;
+
+    public BotIntervalRepository(Neo4jClient neo4jClient) {
+        this.neo4jClient = neo4jClient;
+    }
+
+    /**
+     * @return the intervals of every bot, by bot ID
+     */
+    public Map<String, List<IntervalModel>> findAllByBot() {
+        Map<String, List<IntervalModel>> intervalsByBot = new HashMap<>();
+        neo4jClient.query(FIND_ALL_BY_BOT)
+                .fetch()
+                .all()
+                .forEach(row -> {
+                    IntervalModel interval = new IntervalModel(toLocalTime(row.get("startTime")),
+                            toLocalTime(row.get("endTime")),
+                            row.get("actionsPerHour") == null ? 0 : ((Number) row.get("actionsPerHour")).intValue());
+                    interval.setId((String) row.get("id"));
+                    interval.setDaysOfWeek(toStrings(row.get("daysOfWeek")));
+                    intervalsByBot.computeIfAbsent((String) row.get("botId"), id -> new ArrayList<>()).add(interval);
+                });
+        return intervalsByBot;
+    }
+
+    private static List<String> toStrings(Object value) {
+        if (!(value instanceof List<?> list)) {
+            return null;
+        }
+        List<String> strings = new ArrayList<>(list.size());
+        for (Object element : list) {
+            strings.add(String.valueOf(element));
+        }
+        return strings;
+    }
+
+    private static LocalTime toLocalTime(Object value) {
+        return value instanceof LocalTime time ? time : null;
+    }
+}
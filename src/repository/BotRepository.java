@@ -21,8 +21,10 @@ import org.springframework.data.neo4j.repository.Neo4jRepository;
 import org.springframework.data.neo4j.repository.query.Query;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalTime;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -31,15 +33,93 @@ import java.util.Optional;
  */
 @Repository
 public interface BotRepository extends Neo4jRepository<BotModel, String> {
-    @Query("MATCH (b:Bot) RETURN b ORDER BY b.created_at DESC LIMIT 1")
+    @Query("MATCH (b:Bot) WHERE b.createDate IS NOT NULL RETURN b ORDER BY b.createDate DESC LIMIT 1")
     Optional<BotModel> findLastStored();
 
     @Query("MATCH (b:Bot {username: $username}) RETURN b")
     Optional<BotModel> findByUsername(String username);
 
-    @Query("MATCH (b:Bot)-[:HAS_INTERVALS]->(i:Interval) WHERE $currentTime >= i.startTime AND $currentTime <= i.endTime RETURN b")
-    List<BotModel> findUpcomingActiveBots(LocalTime currentTime);
-
     @Query("MATCH (b:Bot {id: $botId})-[r:LIKED|CREATED|COMMENTED_ON|REPLIED_TO]->(v:Vpin) RETURN v")
     List<VpinModel> findInteractedVpinsByBotId(String botId);
+
+    @Query("MATCH (b:Bot {id: $botId})-[:LIKED|CREATED|COMMENTED_ON|INTERACTED_WITH_COMMENT_UNDER]->(v:Vpin) "
+            + "RETURN DISTINCT v.id")
+    List<String> findInteractedVpinIdsByBotId(String botId);
+
+    @Query("UNWIND $cursors AS cursor MATCH (b:Bot {id: cursor.botId}) "
+            + "SET b.browseSort = cursor.sort, b.browseOffset = cursor.offset, b.browseNoneStreak = cursor.noneStreak "
+            + "REMOVE b.browsePage")
+    void saveBrowseCursors(List<Map<String, Object>> cursors);
+
+    /*
+     * The interaction writes below touch one relationship and the bot's
+     * lastInteractedVpinId in a single statement, instead of saving the whole
+     * bot aggregate with its history. The Vpin node is merged by ID and gets
+     * the non-null properties in $vpin. Relationships are merged on their
+     * interactionDate, so each interaction keeps its own relationship, as it
+     * did when the aggregate was saved, while replaying the same interaction
+     * from the journal writes it only once. A reply without a comment ID only
+     * records INTERACTED_WITH_COMMENT_UNDER.
+     */
+
+    @Query("MATCH (b:Bot {id: $botId}) MERGE (v:Vpin {id: $vpin.id}) SET v += $vpin "
+            + "MERGE (b)-[:LIKED {interactionDate: $interactionDate}]->(v) "
+            + "SET b.lastInteractedVpinId = $vpin.id")
+    void mergeLiked(String botId, Map<String, Object> vpin, LocalDateTime interactionDate);
+
+    @Query("MATCH (b:Bot {id: $botId}) MERGE (v:Vpin {id: $vpin.id}) SET v += $vpin "
+            + "MERGE (b)-[:COMMENTED_ON {interactionDate: $interactionDate}]->(v) "
+            + "SET b.lastInteractedVpinId = $vpin.id")
+    void mergeCommentedOn(String botId, Map<String, Object> vpin, LocalDateTime interactionDate);
+
+    @Query("MATCH (b:Bot {id: $botId}) MERGE (v:Vpin {id: $vpin.id}) SET v += $vpin "
+            + "MERGE (b)-[:CREATED {interactionDate: $interactionDate}]->(v) "
+            + "SET b.lastInteractedVpinId = $vpin.id")
+    void mergeCreated(String botId, Map<String, Object> vpin, LocalDateTime interactionDate);
+
+    @Query("MATCH (b:Bot {id: $botId}) MERGE (v:Vpin {id: $vpin.id}) SET v += $vpin "
+            + "MERGE (b)-[:INTERACTED_WITH_COMMENT_UNDER {interactionDate: $interactionDate}]->(v) "
+            + "FOREACH (_ IN CASE WHEN $commentId IS NOT NULL THEN [1] ELSE [] END | "
+            + "MERGE (c:CommentModel {id: $commentId}) "
+            + "MERGE (b)-[:REPLIED_TO {interactionDate: $interactionDate}]->(c)) "
+            + "SET b.lastInteractedVpinId = $vpin.id")
+    void mergeRepliedTo(String botId, Map<String, Object> vpin, String commentId, LocalDateTime interactionDate);
+
+    @Query("UNWIND $events AS e MATCH (b:Bot {id: e.botId}) "
+            + "MERGE (v:Vpin {id: e.vpin.id}) SET v += e.vpin "
+            + "FOREACH (_ IN CASE WHEN e.type = 'LIKED' THEN [1] ELSE [] END | "
+            + "MERGE (b)-[:LIKED {interactionDate: e.interactionDate}]->(v)) "
+            + "FOREACH (_ IN CASE WHEN e.type = 'COMMENTED_ON' THEN [1] ELSE [] END | "
+            + "MERGE (b)-[:COMMENTED_ON {interactionDate: e.interactionDate}]->(v)) "
+            + "FOREACH (_ IN CASE WHEN e.type = 'CREATED' THEN [1] ELSE [] END | "
+            + "MERGE (b)-[:CREATED {interactionDate: e.interactionDate}]->(v)) "
+            + "FOREACH (_ IN CASE WHEN e.type = 'REPLIED_TO' THEN [1] ELSE [] END | "
+            + "MERGE (b)-[:INTERACTED_WITH_COMMENT_UNDER {interactionDate: e.interactionDate}]->(v)) "
+            + "FOREACH (_ IN CASE WHEN e.type = 'REPLIED_TO' AND e.commentId IS NOT NULL THEN [1] ELSE [] END | "
+            + "MERGE (c:CommentModel {id: e.commentId}) "
+            + "MERGE (b)-[:REPLIED_TO {interactionDate: e.interactionDate}]->(c)) "
+            + "SET b.lastInteractedVpinId = e.vpin.id")
+    void saveInteractions(List<Map<String, Object>> events);
+
+    /**
+     * @param vpin the Vpin model
+     * @return the Vpin's non-null scalar properties, as the $vpin parameter of the merge queries
+     */
+    static Map<String, Object> vpinProperties(VpinModel vpin) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("id", vpin.getId());
+        putIfPresent(properties, "textContent", vpin.getTextContent());
+        putIfPresent(properties, "createdAt", vpin.getCreatedAt());
+        putIfPresent(properties, "videoUrl", vpin.getVideoUrl());
+        putIfPresent(properties, "videoPlatform", vpin.getVideoPlatform());
+        putIfPresent(properties, "likeCount", vpin.getLikeCount());
+        putIfPresent(properties, "commentCount", vpin.getCommentCount());
+        return properties;
+    }
+
+    private static void putIfPresent(Map<String, Object> properties, String key, Object value) {
+        if (value != null) {
+            properties.put(key, value);
+        }
+    }
 }
@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.dao;
+
+import com.osparks.vpin.bot.dto.BotSummary;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads {@link BotSummary}s with queries that return only the summary
+ * properties, so listing bots never loads their interests, intervals,
+ * functions or interaction history. Pages are ordered by bot ID and can be
+ * fetched by number or, for deep pages, by the ID of the last bot seen.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Repository
+public class BotSummaryRepository {
+    private static final String SUMMARY_RETURN = "RETURN b.id AS id, b.username AS username, "
+            + "b.nickname AS nickname, b.name AS name, b.gender AS gender, b.location AS location, b.age AS age, "
+            + "b.occupation AS occupation, b.isActive AS isActive, b.createDate AS createDate, "
+            + "b.lastInteractedVpinId AS lastInteractedVpinId ORDER BY b.id LIMIT $size";
+    static final String FIND_PAGE = "MATCH (b:Bot) WHERE b.id IS NOT NULL WITH b ORDER BY b.id SKIP $skip "
+            + SUMMARY_RETURN;
+    static final String FIND_AFTER = "MATCH (b:Bot) WHERE b.id > $afterId " + SUMMARY_RETURN;
+    static final String COUNT = "MATCH (b:Bot) RETURN count(b) AS total";
+
+    private final Neo4jClient neo4jClient;
+
+    public BotSummaryRepository(Neo4jClient neo4jClient) {
+        this.neo4jClient = neo4jClient;
+    }
+
+    /**
+     * @param page the zero-based page number
+     * @param size the page size
+     * @return the bots on the page
+     */
+    public List<BotSummary> findPage(int page, int size) {
+        return new ArrayList<>(neo4jClient
+                .query(FIND_PAGE)
+                .bind((long) page * size).to("skip")
+                .bind(size).to("size")
+                .fetchAs(BotSummary.class)
+                .mappedBy((typeSystem, record) -> toSummary(record))
+                .all());
+    }
+
+    /**
+     * @param afterId the ID of the last bot on the previous page, or null for the first page
+     * @param size    the page size
+     * @return the bots after {@code afterId}
+     */
+    public List<BotSummary> findAfter(String afterId, int size) {
+        if (afterId == null) {
+            return findPage(0, size);
+        }
+        return new ArrayList<>(neo4jClient
+                .query(FIND_AFTER)
+                .bind(afterId).to("afterId")
+                .bind(size).to("size")
+                .fetchAs(BotSummary.class)
+                .mappedBy((typeSystem, record) -> toSummary(record))
+                .all());
+    }
+
+    /**
+     * @return the number of bots
+     */
+    public long count() {
+        return neo4jClient.query(COUNT)
+                .fetchAs(Long.class)
+                .one()
+                .orElse(0L);
+    }
+
+    private static BotSummary toSummary(Record record) {
+        return new BotSummary(string(record.get("id")), string(record.get("username")),
+                string(record.get("nickname")), string(record.get("name")), string(record.get("gender")),
+                string(record.get("location")),
+                record.get("age").isNull() ? null : record.get("age").asInt(),
+                string(record.get("occupation")),
+                record.get("isActive").isNull() ? null : record.get("isActive").asBoolean(),
+                record.get("createDate").isNull() ? null : record.get("createDate").asLocalDateTime(),
+                string(record.get("lastInteractedVpinId")));
+    }
+
+    private static String string(Value value) {
+        return value.isNull() ? null : value.asString();
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.dao;
+
+import org.neo4j.driver.summary.Plan;
+import org.neo4j.driver.summary.ResultSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.data.neo4j.repository.query.Query;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Brings the graph schema up to date at startup. Each {@link Migration} runs
+ * once, in version order, and is recorded as a (:SchemaMigration) node; the
+ * statements use IF NOT EXISTS so that instances starting together can race
+ * safely.
+ * <p>
+ * With {@code graph.schema.verify-plans} set, every {@link Query} on the
+ * repositories and every Neo4jClient statement of the dao classes is then
+ * planned with EXPLAIN, and startup fails if any plan scans a whole label or
+ * relationship type. Statements that read every node by design are listed in
+ * {@code INTENDED_SCANS} and only logged. This is meant for runs against a
+ * local Neo4j before a release, so that a new query without a matching index
+ * is caught before it meets a full-size graph.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Component
+public class GraphSchemaMigrator {
+    private static final Logger log = LoggerFactory.getLogger(GraphSchemaMigrator.class);
+    private static final List<Class<?>> VERIFIED_REPOSITORIES = List.of(BotRepository.class, VpinRepository.class);
+    private static final Map<String, String> VERIFIED_STATEMENTS = Map.of(
+            "BotSummaryRepository.findPage", BotSummaryRepository.FIND_PAGE,
+            "BotSummaryRepository.findAfter", BotSummaryRepository.FIND_AFTER,
+            "BotSummaryRepository.count", BotSummaryRepository.COUNT,
+            "InteractionRollupRepository.findExpiredDays", InteractionRollupRepository.FIND_EXPIRED_DAYS,
+            "InteractionRollupRepository.findInteractions", InteractionRollupRepository.FIND_INTERACTIONS,
+            "InteractionRollupRepository.findVpinIds", InteractionRollupRepository.FIND_VPIN_IDS,
+            "InteractionRollupRepository.findAllVpinIds", InteractionRollupRepository.FIND_ALL_VPIN_IDS,
+            "InteractionRollupRepository.fold", InteractionRollupRepository.FOLD,
+            "BotIntervalRepository.findAllByBot", BotIntervalRepository.FIND_ALL_BY_BOT);
+    private static final Map<String, String> INTENDED_SCANS = Map.of(
+            "BotIntervalRepository.findAllByBot", "reads every bot's intervals to rebuild the interval index");
+    private static final Set<String> SCAN_OPERATORS = Set.of("AllNodesScan", "NodeByLabelScan",
+            "UnionNodeByLabelsScan", "IntersectionNodeByLabelsScan", "DirectedAllRelationshipsScan",
+            "UndirectedAllRelationshipsScan", "DirectedRelationshipTypeScan", "UndirectedRelationshipTypeScan");
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Unique node IDs", List.of(
+                    "CREATE CONSTRAINT schema_migration_version IF NOT EXISTS "
+                            + "FOR (m:SchemaMigration) REQUIRE m.version IS UNIQUE",
+                    "CREATE CONSTRAINT bot_id IF NOT EXISTS FOR (b:Bot) REQUIRE b.id IS UNIQUE",
+                    "CREATE CONSTRAINT vpin_id IF NOT EXISTS FOR (v:Vpin) REQUIRE v.id IS UNIQUE",
+                    "CREATE CONSTRAINT interval_id IF NOT EXISTS FOR (i:Interval) REQUIRE i.id IS UNIQUE",
+                    "CREATE CONSTRAINT tag_tag IF NOT EXISTS FOR (t:Tag) REQUIRE t.tag IS UNIQUE",
+                    "CREATE CONSTRAINT comment_id IF NOT EXISTS FOR (c:CommentModel) REQUIRE c.id IS UNIQUE",
+                    "CREATE CONSTRAINT bot_function_id IF NOT EXISTS FOR (f:BotFunction) REQUIRE f.id IS UNIQUE")),
+            new Migration(2, "Bot, Interval and Vpin lookup indexes", List.of(
+                    "CREATE INDEX bot_username IF NOT EXISTS FOR (b:Bot) ON (b.username)",
+                    "CREATE INDEX bot_create_date IF NOT EXISTS FOR (b:Bot) ON (b.createDate)",
+                    "CREATE INDEX interval_start_time IF NOT EXISTS FOR (i:Interval) ON (i.startTime)",
+                    "CREATE INDEX interval_end_time IF NOT EXISTS FOR (i:Interval) ON (i.endTime)",
+                    "CREATE INDEX vpin_video_url IF NOT EXISTS FOR (v:Vpin) ON (v.videoUrl)")),
+            new Migration(3, "Interaction date indexes", List.of(
+                    "CREATE INDEX liked_interaction_date IF NOT EXISTS "
+                            + "FOR ()-[r:LIKED]-() ON (r.interactionDate)",
+                    "CREATE INDEX commented_on_interaction_date IF NOT EXISTS "
+                            + "FOR ()-[r:COMMENTED_ON]-() ON (r.interactionDate)",
+                    "CREATE INDEX created_interaction_date IF NOT EXISTS "
+                            + "FOR ()-[r:CREATED]-() ON (r.interactionDate)",
+                    "CREATE INDEX replied_to_interaction_date IF NOT EXISTS "
+                            + "FOR ()-[r:REPLIED_TO]-() ON (r.interactionDate)",
+                    "CREATE INDEX comment_under_interaction_date IF NOT EXISTS "
+                            + "FOR ()-[r:INTERACTED_WITH_COMMENT_UNDER]-() ON (r.interactionDate)")),
+            new Migration(4, "Interaction rollups", List.of(
+                    "CREATE CONSTRAINT interaction_rollup_id IF NOT EXISTS "
+                            + "FOR (u:InteractionRollup) REQUIRE u.id IS UNIQUE",
+                    "CREATE INDEX interaction_rollup_bot_id IF NOT EXISTS "
+                            + "FOR (u:InteractionRollup) ON (u.botId)")));
+
+    private final Neo4jClient neo4jClient;
+    private final boolean enabled;
+    private final boolean verifyPlans;
+
+    public GraphSchemaMigrator(Neo4jClient neo4jClient,
+            @Value("${graph.schema.migrate:true}") boolean enabled,
+            @Value("${graph.schema.verify-plans:false}") boolean verifyPlans) {
+        this.neo4jClient = neo4jClient;
+        this.enabled = enabled;
+        this.verifyPlans = verifyPlans;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            migrate();
+        }
+        if (verifyPlans) {
+            List<String> scans = verifyPlans();
+            if (!scans.isEmpty()) {
+                throw new IllegalStateException("Repository queries scan without an index: " + scans);
+            }
+        }
+    }
+
+    /**
+     * Applies the migrations newer than the highest recorded version.
+     *
+     * @return the number of migrations applied
+     */
+    public int migrate() {
+        int current = currentVersion();
+        int applied = 0;
+        for (Migration migration : MIGRATIONS.stream().sorted(Comparator.comparingInt(Migration::version)).toList()) {
+            if (migration.version() <= current) {
+                continue;
+            }
+            // Schema changes cannot share a transaction with writes, so each statement commits on its own.
+            for (String statement : migration.statements()) {
+                neo4jClient.query(statement).run();
+            }
+            neo4jClient.query("MERGE (m:SchemaMigration {version: $version}) "
+                            + "SET m.description = $description, m.appliedAt = $appliedAt")
+                    .bind(migration.version()).to("version")
+                    .bind(migration.description()).to("description")
+                    .bind(LocalDateTime.now()).to("appliedAt")
+                    .run();
+            log.info("Applied graph schema migration {}: {}", migration.version(), migration.description());
+            applied++;
+        }
+        if (applied > 0) {
+            neo4jClient.query("CALL db.awaitIndexes()").run();
+        }
+        return applied;
+    }
+
+    /**
+     * Plans each repository query and dao statement with EXPLAIN, which
+     * compiles the query without running it or needing its parameters.
+     *
+     * @return the queries whose plans scan a label or relationship type, as
+     *         {@code Repository.method: operator}
+     */
+    public List<String> verifyPlans() {
+        List<String> scans = new ArrayList<>();
+        for (Class<?> repository : VERIFIED_REPOSITORIES) {
+            for (Method method : repository.getDeclaredMethods()) {
+                Query query = method.getAnnotation(Query.class);
+                if (query != null) {
+                    verifyPlan(repository.getSimpleName() + "." + method.getName(), query.value(), scans);
+                }
+            }
+        }
+        for (Map.Entry<String, String> statement : VERIFIED_STATEMENTS.entrySet()) {
+            verifyPlan(statement.getKey(), statement.getValue(), scans);
+        }
+        log.info("Verified plans of repository queries, {} scan(s) found", scans.size());
+        return scans;
+    }
+
+    private void verifyPlan(String name, String statement, List<String> scans) {
+        Set<String> operators = new HashSet<>();
+        try {
+            ResultSummary summary = neo4jClient.query("EXPLAIN " + statement).run();
+            if (summary.hasPlan()) {
+                collectScans(summary.plan(), operators);
+            }
+        } catch (Exception e) {
+            log.error("Error planning " + name + ": ", e);
+            scans.add(name + ": not planned");
+            return;
+        }
+        if (!operators.isEmpty() && INTENDED_SCANS.containsKey(name)) {
+            log.info("{} scans {} by design: {}", name, operators, INTENDED_SCANS.get(name));
+            return;
+        }
+        for (String operator : operators) {
+            scans.add(name + ": " + operator);
+        }
+    }
+
+    private int currentVersion() {
+        return neo4jClient.query("MATCH (m:SchemaMigration) RETURN coalesce(max(m.version), 0) AS version")
+                .fetchAs(Integer.class)
+                .one()
+                .orElse(0);
+    }
+
+    private static void collectScans(Plan plan, Set<String> operators) {
+        // Operator names carry a planner suffix such as "@neo4j".
+        String operator = plan.operatorType();
+        int suffix = operator.indexOf('@');
+        if (suffix >= 0) {
+            operator = operator.substring(0, suffix);
+        }
+        if (SCAN_OPERATORS.contains(operator)) {
+            operators.add(operator);
+        }
+        for (Plan child : plan.children()) {
+            collectScans(child, operators);
+        }
+    }
+
+    private record Migration(int version, String description, List<String> statements) {
+    }
+}
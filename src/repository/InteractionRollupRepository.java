@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.dao;
+
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reads and writes (:InteractionRollup) nodes, which hold one bot's
+ * interactions of one day after the raw relationships have been folded away.
+ * A rollup keeps a count per interaction type and the IDs of the Vpins the bot
+ * interacted with, packed by {@link com.osparks.vpin.bot.util.VpinIdCodec}.
+ * Rollups hang off the bot by HAS_ROLLUP, which BotModel does not map, so they
+ * are never loaded with the bot.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Repository
+public class InteractionRollupRepository {
+    private static final List<String> FOLDED_TYPE_LIST = List.of("LIKED", "COMMENTED_ON", "REPLIED_TO",
+            "INTERACTED_WITH_COMMENT_UNDER");
+    private static final String FOLDED_TYPES = String.join("|", FOLDED_TYPE_LIST);
+    // One branch per type, so that each can seek its interactionDate index;
+    // a pattern over several types is planned as a relationship type scan.
+    static final String FIND_EXPIRED_DAYS = "CALL { "
+            + FOLDED_TYPE_LIST.stream()
+                    .map(type -> "MATCH (b:Bot)-[r:" + type + "]->() WHERE r.interactionDate < $cutoff RETURN b, r")
+                    .collect(Collectors.joining(" UNION ALL "))
+            + " } RETURN DISTINCT b.id AS botId, date(r.interactionDate) AS day LIMIT $limit";
+    static final String FIND_INTERACTIONS = "MATCH (b:Bot {id: $botId})-[r:" + FOLDED_TYPES + "]->(t) "
+            + "WHERE r.interactionDate >= $from AND r.interactionDate < $to "
+            + "RETURN id(r) AS relationshipId, type(r) AS type, t.id AS targetId";
+    static final String FIND_VPIN_IDS = "MATCH (u:InteractionRollup {id: $id}) RETURN u.vpinIds AS vpinIds";
+    static final String FIND_ALL_VPIN_IDS = "MATCH (u:InteractionRollup {botId: $botId}) "
+            + "WHERE u.vpinIds IS NOT NULL RETURN u.vpinIds AS vpinIds";
+    static final String FOLD = "MATCH (b:Bot {id: $botId})-[r:" + FOLDED_TYPES + "]->() "
+            + "WHERE id(r) IN $relationshipIds "
+            + "WITH b, collect(r) AS rels, "
+            + "sum(CASE type(r) WHEN 'LIKED' THEN 1 ELSE 0 END) AS liked, "
+            + "sum(CASE type(r) WHEN 'COMMENTED_ON' THEN 1 ELSE 0 END) AS commentedOn, "
+            + "sum(CASE type(r) WHEN 'REPLIED_TO' THEN 1 ELSE 0 END) AS repliedTo, "
+            + "sum(CASE type(r) WHEN 'INTERACTED_WITH_COMMENT_UNDER' THEN 1 ELSE 0 END) AS commentsUnder "
+            + "MERGE (b)-[:HAS_ROLLUP]->(u:InteractionRollup {id: $id}) "
+            + "ON CREATE SET u.botId = $botId, u.day = $day, u.liked = 0, u.commentedOn = 0, "
+            + "u.repliedTo = 0, u.commentsUnder = 0 "
+            + "SET u.liked = u.liked + liked, u.commentedOn = u.commentedOn + commentedOn, "
+            + "u.repliedTo = u.repliedTo + repliedTo, u.commentsUnder = u.commentsUnder + commentsUnder, "
+            + "u.vpinIds = $vpinIds "
+            + "FOREACH (r IN rels | DELETE r) "
+            + "RETURN size(rels) AS folded";
+
+    private final Neo4jClient neo4jClient;
+
+    public InteractionRollupRepository(Neo4jClient neo4jClient) {
+        this.neo4jClient = neo4jClient;
+    }
+
+    /**
+     * @param cutoff the oldest interaction date to keep raw
+     * @param limit  the maximum number of days to return
+     * @return the bot days that still have raw interactions older than the cutoff
+     */
+    public List<ExpiredDay> findExpiredDays(LocalDateTime cutoff, int limit) {
+        return new ArrayList<>(neo4jClient
+                .query(FIND_EXPIRED_DAYS)
+                .bind(cutoff).to("cutoff")
+                .bind(limit).to("limit")
+                .fetchAs(ExpiredDay.class)
+                .mappedBy((typeSystem, record) -> new ExpiredDay(record.get("botId").asString(),
+                        record.get("day").asLocalDate()))
+                .all());
+    }
+
+    /**
+     * @param botId the bot ID
+     * @param from  the first interaction date to return
+     * @param to    the interaction date to stop before
+     * @return the bot's raw interactions in the range
+     */
+    public List<Interaction> findInteractions(String botId, LocalDateTime from, LocalDateTime to) {
+        return new ArrayList<>(neo4jClient
+                .query(FIND_INTERACTIONS)
+                .bind(botId).to("botId")
+                .bind(from).to("from")
+                .bind(to).to("to")
+                .fetchAs(Interaction.class)
+                .mappedBy((typeSystem, record) -> new Interaction(record.get("relationshipId").asLong(),
+                        record.get("type").asString(),
+                        record.get("targetId").isNull() ? null : record.get("targetId").asString()))
+                .all());
+    }
+
+    /**
+     * @param botId the bot ID
+     * @param day   the day
+     * @return the packed Vpin IDs of the bot's rollup for the day, or null if there is none
+     */
+    public byte[] findVpinIds(String botId, LocalDate day) {
+        return neo4jClient
+                .query(FIND_VPIN_IDS)
+                .bind(rollupId(botId, day)).to("id")
+                .fetchAs(byte[].class)
+                .mappedBy((typeSystem, record) -> record.get("vpinIds").isNull() ? null
+                        : record.get("vpinIds").asByteArray())
+                .one()
+                .orElse(null);
+    }
+
+    /**
+     * @param botId the bot ID
+     * @return the packed Vpin IDs of all of the bot's rollups
+     */
+    public List<byte[]> findAllVpinIds(String botId) {
+        return new ArrayList<>(neo4jClient
+                .query(FIND_ALL_VPIN_IDS)
+                .bind(botId).to("botId")
+                .fetchAs(byte[].class)
+                .mappedBy((typeSystem, record) -> record.get("vpinIds").asByteArray())
+                .all());
+    }
+
+    /**
+     * Adds raw interactions to the bot's rollup for a day and deletes them, in
+     * one statement. The counts come from the relationships that still exist
+     * when the statement runs, so folding the same relationships twice does
+     * not count them twice.
+     *
+     * @param botId           the bot ID
+     * @param day             the day the interactions fall on
+     * @param relationshipIds the IDs of the relationships to fold
+     * @param vpinIds         the packed Vpin IDs of the existing rollup and the folded interactions
+     * @return the number of relationships folded
+     */
+    public long fold(String botId, LocalDate day, List<Long> relationshipIds, byte[] vpinIds) {
+        return neo4jClient
+                .query(FOLD)
+                .bind(botId).to("botId")
+                .bind(day).to("day")
+                .bind(rollupId(botId, day)).to("id")
+                .bind(relationshipIds).to("relationshipIds")
+                .bind(vpinIds).to("vpinIds")
+                .fetchAs(Long.class)
+                .one()
+                .orElse(0L);
+    }
+
+    private static String rollupId(String botId, LocalDate day) {
+        return botId + ":" + day;
+    }
+
+    public record ExpiredDay(String botId, LocalDate day) {
+    }
+
+    public record Interaction(long relationshipId, String type, String targetId) {
+    }
+}
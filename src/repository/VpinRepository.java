@@ -34,4 +34,7 @@ public interface VpinRepository extends Neo4jRepository<VpinModel, String> {
     @Query("MATCH (b:Bot {id: $botId})-[r:INTERACTED_WITH]->(v:VpinModel) " +
             "RETURN v ORDER BY r.interactionDate DESC LIMIT 1")
     VpinModel findMostRecentlyInteractedVpinByBot(String botId);
+
+    @Query("MATCH (v:Vpin) WHERE v.videoUrl IS NOT NULL RETURN DISTINCT v.videoUrl")
+    List<String> findAllVideoUrls();
 }
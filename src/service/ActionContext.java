@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import com.osparks.vpin.bot.dto.VpinCommentResponse;
+import com.osparks.vpin.bot.models.BotModel;
+import com.osparks.vpin.bot.models.VpinModel;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * State shared by the commands of one bot action. The bot's access token, the
+ * Vpins and comment threads it touches and its persona prompt fragment are
+ * fetched at most once per action, and every remote call made through the
+ * context is counted by kind. Lookups the catalog mirror or comment cache
+ * answer are not counted.
+ * <p>
+ * A context belongs to the single thread running the action and is not
+ * thread-safe, except for the call counts, which browse prefetches update from
+ * their pool. Create one per action with {@link ActionContextFactory}.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+public class ActionContext {
+    public static final String CALL_LOGIN = "login";
+    public static final String CALL_VPIN = "vpin";
+    public static final String CALL_COMMENTS = "comments";
+    public static final String CALL_OPENAI = "openai";
+    public static final String CALL_WRITE = "write";
+
+    private final BotModel bot;
+    private final VpinService vpinService;
+    private final VpinAuthenticationService vpinAuthenticationService;
+    private final InterestService interestService;
+    private final long startedAtMillis = System.currentTimeMillis();
+    private final Map<String, VpinModel> vpins = new HashMap<>();
+    private final Map<String, VpinCommentResponse> comments = new HashMap<>();
+    private final Map<String, Integer> remoteCalls = new LinkedHashMap<>();
+    private String accessToken;
+    private String interests;
+
+    ActionContext(BotModel bot, VpinService vpinService, VpinAuthenticationService vpinAuthenticationService,
+            InterestService interestService) {
+        this.bot = bot;
+        this.vpinService = vpinService;
+        this.vpinAuthenticationService = vpinAuthenticationService;
+        this.interestService = interestService;
+    }
+
+    public BotModel getBot() {
+        return bot;
+    }
+
+    /**
+     * Logs the bot in on first use.
+     *
+     * @return the bot's access token
+     * @throws Exception if the bot cannot be logged in
+     */
+    public String getAccessToken() throws Exception {
+        if (accessToken == null) {
+            recordRemoteCall(CALL_LOGIN);
+            accessToken = vpinAuthenticationService.botLogin(bot).getAccess_token();
+        }
+        return accessToken;
+    }
+
+    /**
+     * Remembers a Vpin the action already holds, so it is not fetched again.
+     *
+     * @param vpin the Vpin model
+     */
+    public void rememberVpin(VpinModel vpin) {
+        if (vpin != null && vpin.getId() != null) {
+            vpins.putIfAbsent(vpin.getId(), vpin);
+        }
+    }
+
+    /**
+     * Returns a Vpin, fetching it on first use.
+     *
+     * @param vpinId the Vpin ID
+     * @return the Vpin model
+     */
+    public VpinModel getVpin(String vpinId) {
+        VpinModel vpin = vpins.get(vpinId);
+        if (vpin == null) {
+            vpin = vpinService.getVpin(vpinId, this);
+            vpins.put(vpinId, vpin);
+        }
+        return vpin;
+    }
+
+    /**
+     * Returns a Vpin's comments, fetching them on first use.
+     *
+     * @param vpin the Vpin model
+     * @return the comment response, or null if the Vpin has no comments
+     */
+    public VpinCommentResponse getComments(VpinModel vpin) {
+        if (!comments.containsKey(vpin.getId())) {
+            comments.put(vpin.getId(), vpinService.getVpinComments(vpin, this));
+        }
+        return comments.get(vpin.getId());
+    }
+
+    /**
+     * Drops a Vpin's comments after the action wrote to the thread.
+     *
+     * @param vpinId the Vpin ID
+     */
+    public void forgetComments(String vpinId) {
+        comments.remove(vpinId);
+    }
+
+    /**
+     * Returns the bot's interests as used in prompts, computing them on first use.
+     *
+     * @return the interests prompt fragment
+     */
+    public String getInterests() {
+        if (interests == null) {
+            interests = interestService.getInterests(bot);
+        }
+        return interests;
+    }
+
+    /**
+     * Counts a remote call made on behalf of the action.
+     *
+     * @param kind the kind of call, one of the {@code CALL_} constants
+     */
+    public synchronized void recordRemoteCall(String kind) {
+        remoteCalls.merge(kind, 1, Integer::sum);
+    }
+
+    /**
+     * @return a copy of the remote calls made so far, by kind
+     */
+    public synchronized Map<String, Integer> getRemoteCalls() {
+        return new LinkedHashMap<>(remoteCalls);
+    }
+
+    /**
+     * @return the total number of remote calls made so far
+     */
+    public synchronized int getRemoteCallCount() {
+        int total = 0;
+        for (int count : remoteCalls.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    public long getStartedAtMillis() {
+        return startedAtMillis;
+    }
+}
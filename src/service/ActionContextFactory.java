@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import com.osparks.vpin.bot.models.BotModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Creates {@link ActionContext}s and records the remote calls each action made.
+ * A context is registered for its bot until it is completed, so that code
+ * reached through a path that only passes the bot, such as a browse strategy
+ * chosen by {@code BrowseBehaviorConfig}, counts its calls against the running
+ * action.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+public class ActionContextFactory {
+    private static final Logger log = LoggerFactory.getLogger(ActionContextFactory.class);
+    private static final List<String> CALL_KINDS = List.of(ActionContext.CALL_LOGIN, ActionContext.CALL_VPIN,
+            ActionContext.CALL_COMMENTS, ActionContext.CALL_OPENAI, ActionContext.CALL_WRITE);
+    private final VpinService vpinService;
+    private final VpinAuthenticationService vpinAuthenticationService;
+    private final InterestService interestService;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary remoteCallsPerAction;
+    private final Map<String, Counter> remoteCallCounters = new ConcurrentHashMap<>();
+    private final Map<String, ActionContext> activeContexts = new ConcurrentHashMap<>();
+
+    public ActionContextFactory(VpinService vpinService, VpinAuthenticationService vpinAuthenticationService,
+            InterestService interestService, MeterRegistry meterRegistry) {
+        this.vpinService = vpinService;
+        this.vpinAuthenticationService = vpinAuthenticationService;
+        this.interestService = interestService;
+        this.meterRegistry = meterRegistry;
+        this.remoteCallsPerAction = DistributionSummary.builder("bot.action.remote.calls")
+                .description("Remote calls made per bot action")
+                .register(meterRegistry);
+        for (String kind : CALL_KINDS) {
+            remoteCallCounters.put(kind, remoteCallCounter(kind));
+        }
+    }
+
+    /**
+     * Starts the context for one action of a bot and registers it as the bot's
+     * running action.
+     *
+     * @param bot the bot model
+     * @return a new action context
+     */
+    public ActionContext create(BotModel bot) {
+        ActionContext context = new ActionContext(bot, vpinService, vpinAuthenticationService, interestService);
+        activeContexts.put(bot.getId(), context);
+        return context;
+    }
+
+    /**
+     * Runs work in the bot's running action, or in an action of its own that
+     * is completed afterwards when the bot has none.
+     *
+     * @param bot    the bot model
+     * @param action the work to run
+     * @param <T>    the result type
+     * @return the result of the work
+     */
+    public <T> T withContext(BotModel bot, Function<ActionContext, T> action) {
+        ActionContext active = activeContexts.get(bot.getId());
+        if (active != null) {
+            return action.apply(active);
+        }
+        ActionContext context = create(bot);
+        try {
+            return action.apply(context);
+        } finally {
+            complete(context);
+        }
+    }
+
+    /**
+     * Records the remote calls the action made and unregisters it.
+     *
+     * @param context the finished action context
+     */
+    public void complete(ActionContext context) {
+        activeContexts.remove(context.getBot().getId(), context);
+        Map<String, Integer> remoteCalls = context.getRemoteCalls();
+        int total = 0;
+        for (Map.Entry<String, Integer> entry : remoteCalls.entrySet()) {
+            remoteCallCounters.computeIfAbsent(entry.getKey(), this::remoteCallCounter).increment(entry.getValue());
+            total += entry.getValue();
+        }
+        remoteCallsPerAction.record(total);
+        log.info("Action for bot {} made {} remote calls {} in {} ms", context.getBot().getId(), total,
+                remoteCalls, System.currentTimeMillis() - context.getStartedAtMillis());
+    }
+
+    private Counter remoteCallCounter(String kind) {
+        return Counter.builder("bot.action.remote.calls.total")
+                .description("Remote calls made by bot actions, by kind")
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+}
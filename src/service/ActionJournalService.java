@@ -0,0 +1,363 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import com.osparks.vpin.bot.dao.BotRepository;
+import com.osparks.vpin.bot.util.ActionJournal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.neo4j.driver.exceptions.ServiceUnavailableException;
+import org.neo4j.driver.exceptions.SessionExpiredException;
+import org.neo4j.driver.exceptions.TransientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes bot interactions durable on local disk before they reach Neo4j. The
+ * action thread only appends to the {@link ActionJournal}; a projector thread
+ * replays the journal into Neo4j in batches and checkpoints what it has
+ * written, so interactions survive a crash or a Neo4j outage and are written
+ * once Neo4j is back.
+ * <p>
+ * Journal records hold IDs only. The Vpin properties merged with each
+ * interaction are kept in memory until the record is projected; records
+ * replayed after a restart merge their Vpin by ID alone.
+ * <p>
+ * A batch that fails while Neo4j is unavailable is retried until Neo4j is
+ * back. A batch that Neo4j rejects {@code interactions.journal.max-attempts}
+ * times in a row is projected one record at a time. The first record that
+ * still fails is appended to the dead-letter file and the checkpoint moves past
+ * it, so one bad record cannot stop projection.
+ * <p>
+ * The journal is off by default; {@link InteractionWriter}'s queue is the
+ * canonical write path. Set {@code interactions.journal.enabled} where
+ * interactions must survive a crash, at the cost of a disk append per action.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+public class ActionJournalService {
+    private static final Logger log = LoggerFactory.getLogger(ActionJournalService.class);
+
+    private final BotRepository botRepo;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final String directory;
+    private final int segmentRecords;
+    private final long groupCommitMillis;
+    private final int batchSize;
+    private final long projectIntervalMillis;
+    private final long retryMillis;
+    private final int maxPendingProperties;
+    private final int maxAttempts;
+    private final Map<Long, Map<String, Object>> pendingVpinProperties = new ConcurrentHashMap<>();
+    private final Timer appendTimer;
+    private final Timer projectTimer;
+    private final DistributionSummary commitSize;
+    private final Counter projectFailures;
+    private final Counter deadLetters;
+    private ActionJournal journal;
+    private int failedAttempts;
+    private volatile long checkpoint;
+    private volatile boolean running;
+    private Thread projector;
+
+    public ActionJournalService(BotRepository botRepo, MeterRegistry meterRegistry,
+            @Value("${interactions.journal.enabled:false}") boolean enabled,
+            @Value("${interactions.journal.dir:${java.io.tmpdir}/vpin-action-journal}") String directory,
+            @Value("${interactions.journal.segment-records:65536}") int segmentRecords,
+            @Value("${interactions.journal.group-commit-ms:5}") long groupCommitMillis,
+            @Value("${interactions.journal.batch-size:200}") int batchSize,
+            @Value("${interactions.journal.project-interval-ms:500}") long projectIntervalMillis,
+            @Value("${interactions.journal.retry-ms:5000}") long retryMillis,
+            @Value("${interactions.journal.max-pending-properties:100000}") int maxPendingProperties,
+            @Value("${interactions.journal.max-attempts:5}") int maxAttempts) {
+        this.botRepo = botRepo;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.groupCommitMillis = groupCommitMillis;
+        this.batchSize = batchSize;
+        this.projectIntervalMillis = projectIntervalMillis;
+        this.retryMillis = retryMillis;
+        this.maxPendingProperties = maxPendingProperties;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.appendTimer = Timer.builder("interactions.journal.append.latency")
+                .description("Time to append an interaction to the journal, including its group commit")
+                .register(meterRegistry);
+        this.projectTimer = Timer.builder("interactions.journal.project.latency")
+                .description("Time to write one batch of journal records to Neo4j")
+                .register(meterRegistry);
+        this.commitSize = DistributionSummary.builder("interactions.journal.commit.size")
+                .description("Journal records made durable per group commit")
+                .register(meterRegistry);
+        this.projectFailures = Counter.builder("interactions.journal.project.failures")
+                .description("Journal batches that failed to reach Neo4j")
+                .register(meterRegistry);
+        this.deadLetters = Counter.builder("interactions.journal.dead.letters")
+                .description("Journal records skipped after Neo4j kept rejecting them")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            journal = new ActionJournal(Paths.get(directory), segmentRecords, groupCommitMillis, commitSize::record);
+            checkpoint = journal.readCheckpoint();
+        } catch (IOException e) {
+            log.error("Error opening action journal, interactions will be written without it: ", e);
+            journal = null;
+            return;
+        }
+        Gauge.builder("interactions.journal.lag", this, ActionJournalService::lag)
+                .description("Journal records not yet written to Neo4j")
+                .register(meterRegistry);
+        if (lag() > 0) {
+            log.info("Replaying {} journaled interactions into Neo4j", (long) lag());
+        }
+
+        running = true;
+        projector = new Thread(this::projectLoop, "action-journal-projector");
+        projector.setDaemon(true);
+        projector.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (journal == null) {
+            return;
+        }
+        running = false;
+        projector.interrupt();
+        projector.join(TimeUnit.SECONDS.toMillis(10));
+        journal.close();
+        try {
+            while (projectBatch() > 0) {
+                // Write what Neo4j will take; the rest is replayed on the next start.
+            }
+        } catch (Exception e) {
+            log.error("Error projecting action journal on shutdown, it will be replayed on the next start: ", e);
+        }
+    }
+
+    /**
+     * @return true if interactions should be appended here
+     */
+    public boolean isActive() {
+        return journal != null;
+    }
+
+    /**
+     * Appends an interaction and waits for it to be on disk.
+     *
+     * @param type            the interaction type
+     * @param botId           the bot ID
+     * @param vpin            the Vpin properties, including its ID
+     * @param commentId       the comment ID for replies, or null
+     * @param interactionDate when the interaction happened
+     * @throws Exception if the interaction could not be journaled
+     */
+    public void append(InteractionWriter.Type type, String botId, Map<String, Object> vpin, String commentId,
+            LocalDateTime interactionDate) throws Exception {
+        long startedAt = System.nanoTime();
+        long epochMillis = interactionDate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        // The properties are registered before the record is committed, since
+        // the projector may read the record as soon as it is on disk.
+        long[] reserved = {0};
+        try {
+            journal.append(type.ordinal(), epochMillis, botId, (String) vpin.get("id"), commentId, sequence -> {
+                if (pendingVpinProperties.size() < maxPendingProperties) {
+                    pendingVpinProperties.put(sequence, vpin);
+                    reserved[0] = sequence;
+                }
+            });
+        } catch (Exception e) {
+            if (reserved[0] > 0) {
+                pendingVpinProperties.remove(reserved[0]);
+            }
+            throw e;
+        }
+        appendTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+    }
+
+    private void projectLoop() {
+        while (running) {
+            try {
+                if (projectBatch() == 0) {
+                    Thread.sleep(projectIntervalMillis);
+                }
+                failedAttempts = 0;
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return;
+                }
+            } catch (Exception e) {
+                projectFailures.increment();
+                if (!isTransient(e) && ++failedAttempts >= maxAttempts) {
+                    failedAttempts = 0;
+                    log.error("Neo4j rejected the action journal batch " + maxAttempts
+                            + " times, projecting it record by record: ", e);
+                    skipFailedRecord();
+                    continue;
+                }
+                log.error("Error projecting action journal into Neo4j, retrying: ", e);
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException interrupted) {
+                    if (!running) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the next batch of journal records after the checkpoint to Neo4j
+     * and moves the checkpoint past them.
+     *
+     * @return the number of records written
+     */
+    private int projectBatch() throws IOException {
+        List<ActionJournal.Entry> entries = journal.read(checkpoint + 1, batchSize);
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        project(entries);
+        return entries.size();
+    }
+
+    /**
+     * Projects the failing batch one record at a time, up to the first record
+     * Neo4j rejects, which is dead-lettered and skipped. Stops without skipping
+     * anything if Neo4j becomes unavailable.
+     */
+    private void skipFailedRecord() {
+        try {
+            for (ActionJournal.Entry entry : journal.read(checkpoint + 1, batchSize)) {
+                try {
+                    project(List.of(entry));
+                } catch (Exception e) {
+                    if (isTransient(e)) {
+                        log.error("Error projecting action journal record " + entry.sequence() + ", retrying: ", e);
+                        return;
+                    }
+                    deadLetter(entry, e);
+                    journal.writeCheckpoint(entry.sequence());
+                    checkpoint = entry.sequence();
+                    pendingVpinProperties.remove(entry.sequence());
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error reading action journal: ", e);
+        }
+    }
+
+    private void project(List<ActionJournal.Entry> entries) throws IOException {
+        InteractionWriter.Type[] types = InteractionWriter.Type.values();
+        List<Map<String, Object>> rows = new ArrayList<>(entries.size());
+        for (ActionJournal.Entry entry : entries) {
+            Map<String, Object> vpin = pendingVpinProperties.get(entry.sequence());
+            Map<String, Object> row = new HashMap<>();
+            row.put("type", types[entry.type()].name());
+            row.put("botId", entry.botId());
+            row.put("vpin", vpin != null ? vpin : Map.of("id", entry.vpinId()));
+            row.put("commentId", entry.commentId());
+            row.put("interactionDate",
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.epochMillis()), ZoneId.systemDefault()));
+            rows.add(row);
+        }
+
+        long startedAt = System.nanoTime();
+        botRepo.saveInteractions(rows);
+        projectTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+
+        long last = entries.get(entries.size() - 1).sequence();
+        journal.writeCheckpoint(last);
+        checkpoint = last;
+        pendingVpinProperties.keySet().removeIf(sequence -> sequence <= last);
+    }
+
+    /**
+     * Appends a skipped record to {@code dead-letter.log} in the journal
+     * directory, one tab-separated line per record, so it can be replayed by
+     * hand once the cause is fixed.
+     */
+    private void deadLetter(ActionJournal.Entry entry, Exception cause) {
+        deadLetters.increment();
+        String line = entry.sequence() + "\t" + InteractionWriter.Type.values()[entry.type()] + "\t"
+                + entry.epochMillis() + "\t" + entry.botId() + "\t" + entry.vpinId() + "\t" + entry.commentId()
+                + "\t" + String.valueOf(cause.getMessage()).replace('\n', ' ') + "\n";
+        Path deadLetterFile = Paths.get(directory, "dead-letter.log");
+        try {
+            Files.writeString(deadLetterFile, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.error("Error writing action journal dead letter " + line.trim() + ": ", e);
+        }
+        log.error("Skipped action journal record {} that Neo4j rejected, see {}", entry.sequence(), deadLetterFile);
+    }
+
+    /**
+     * @return whether the failure is Neo4j being unavailable rather than the
+     *         data being rejected, so retrying later can succeed
+     */
+    private static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof TransientException || cause instanceof ServiceUnavailableException
+                    || cause instanceof SessionExpiredException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double lag() {
+        return journal == null ? 0 : Math.max(0, journal.getDurableSequence() - checkpoint);
+    }
+}
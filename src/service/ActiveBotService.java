@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import com.osparks.vpin.bot.dao.BotIntervalRepository;
+import com.osparks.vpin.bot.models.BotModel;
+import com.osparks.vpin.bot.models.IntervalModel;
+import com.osparks.vpin.bot.util.BotIntervalIndex;
+import com.osparks.vpin.bot.util.WeeklyActivityBitmap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Answers which bots are active now, or about to be, from the in-memory
+ * {@link BotIntervalIndex}, and keeps the {@link BotActivityService} bitmaps in
+ * step with it. Both are updated as bots are created and edited, and rebuilt
+ * from Neo4j at startup and every {@code bots.intervals.rebuild-interval-ms}
+ * to pick up changes made elsewhere, including deleted bots. Updates wait for
+ * a rebuild in progress, so rows read before an update never overwrite it.
+ * Bots with an interval on an unknown day name are left out and logged, so
+ * one bad row cannot stop the rebuild.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+public class ActiveBotService {
+    private static final Logger log = LoggerFactory.getLogger(ActiveBotService.class);
+    private final BotIntervalIndex botIntervalIndex;
+    private final BotIntervalRepository botIntervalRepo;
+    private final BotActivityService botActivityService;
+    private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final Object updateMonitor = new Object();
+    private final Timer rebuildTimer;
+
+    public ActiveBotService(BotIntervalIndex botIntervalIndex, BotIntervalRepository botIntervalRepo,
+            BotActivityService botActivityService, MeterRegistry meterRegistry) {
+        this.botIntervalIndex = botIntervalIndex;
+        this.botIntervalRepo = botIntervalRepo;
+        this.botActivityService = botActivityService;
+        this.rebuildTimer = Timer.builder("bots.intervals.rebuild.latency")
+                .description("Time taken to rebuild the bot interval index from Neo4j")
+                .register(meterRegistry);
+        Gauge.builder("bots.intervals.indexed", this, ActiveBotService::indexedBots)
+                .description("Bots held by the interval index")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the index from the Interval nodes in Neo4j.
+     */
+    @Scheduled(fixedDelayString = "${bots.intervals.rebuild-interval-ms:600000}",
+            initialDelayString = "${bots.intervals.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        long startedAt = System.nanoTime();
+        synchronized (updateMonitor) {
+            Map<String, List<IntervalModel>> intervalsByBot;
+            try {
+                intervalsByBot = botIntervalRepo.findAllByBot();
+            } catch (Exception e) {
+                log.error("Error rebuilding bot interval index: ", e);
+                return;
+            }
+            intervalsByBot = withValidDays(intervalsByBot);
+            indexLock.writeLock().lock();
+            try {
+                botIntervalIndex.replaceAll(intervalsByBot);
+            } finally {
+                indexLock.writeLock().unlock();
+            }
+            botActivityService.replaceAll(intervalsByBot);
+        }
+        rebuildTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        log.info("Rebuilt bot interval index with {} bots", indexedBots());
+    }
+
+    /**
+     * @param time the date and time
+     * @return the IDs of the bots with an interval containing the time
+     */
+    public Set<String> findActiveBotIds(LocalDateTime time) {
+        indexLock.readLock().lock();
+        try {
+            return botIntervalIndex.findActiveBotIds(time);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param time    the date and time
+     * @param minutes the length of the window
+     * @return the IDs of the bots with an interval starting within the window
+     */
+    public Set<String> findUpcomingBotIds(LocalDateTime time, int minutes) {
+        indexLock.readLock().lock();
+        try {
+            return botIntervalIndex.findBotIdsStartingWithin(time, minutes);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes a created or edited bot's intervals.
+     *
+     * @param botModel the bot model
+     */
+    public void update(BotModel botModel) {
+        if (!hasValidDays(botModel.getId(), botModel.getIntervals())) {
+            return;
+        }
+        synchronized (updateMonitor) {
+            indexLock.writeLock().lock();
+            try {
+                botIntervalIndex.put(botModel.getId(), botModel.getIntervals());
+            } finally {
+                indexLock.writeLock().unlock();
+            }
+            botActivityService.put(botModel.getId(), botModel.getIntervals());
+        }
+    }
+
+    private static Map<String, List<IntervalModel>> withValidDays(Map<String, List<IntervalModel>> intervalsByBot) {
+        Map<String, List<IntervalModel>> valid = new HashMap<>(intervalsByBot.size() * 2);
+        for (Map.Entry<String, List<IntervalModel>> entry : intervalsByBot.entrySet()) {
+            if (hasValidDays(entry.getKey(), entry.getValue())) {
+                valid.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return valid;
+    }
+
+    private static boolean hasValidDays(String botId, List<IntervalModel> intervals) {
+        if (intervals == null) {
+            return true;
+        }
+        try {
+            for (IntervalModel interval : intervals) {
+                WeeklyActivityBitmap.dayMask(interval.getDaysOfWeek());
+            }
+            return true;
+        } catch (IllegalArgumentException | NullPointerException e) {
+            log.warn("Not indexing bot {}, its intervals have an invalid day: {}", botId, e.getMessage());
+            return false;
+        }
+    }
+
+    private int indexedBots() {
+        indexLock.readLock().lock();
+        try {
+            return botIntervalIndex.size();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+}
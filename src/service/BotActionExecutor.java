@@ -19,7 +19,10 @@ import com.osparks.vpin.bot.config.BrowseBehaviorConfig;
 import com.osparks.vpin.bot.model.BotFunction;
 import com.osparks.vpin.bot.model.BotModel;
 import com.osparks.vpin.bot.model.VpinModel;
+import com.osparks.vpin.bot.service.browseBehaviors.RecommendedVpinsBehavior;
+import com.osparks.vpin.bot.service.browseBehaviors.TagFirstBrowseBehavior;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
@@ -36,13 +39,27 @@ import java.util.List;
 public class BotActionExecutor {
     private final BrowseBehaviorConfig browseBehaviorConfig;
     private final BotCommandService botCommandService;
+    private final ActionContextFactory actionContextFactory;
+    private final BrowsePagePolicy browsePagePolicy;
+    private final RecommendedVpinsBehavior recommendedVpinsBehavior;
+    private final TagFirstBrowseBehavior tagFirstBrowseBehavior;
+    @Value("${browse.recommended.enabled:true}")
+    private boolean recommendedEnabled;
+    @Value("${browse.tag-first.enabled:true}")
+    private boolean tagFirstEnabled;
     @Autowired
     private SimpMessagingTemplate template;
 
     @Autowired
-    public BotActionExecutor(BrowseBehaviorConfig browseBehaviorConfig, BotCommandService botCommandService) {
+    public BotActionExecutor(BrowseBehaviorConfig browseBehaviorConfig, BotCommandService botCommandService,
+            ActionContextFactory actionContextFactory, BrowsePagePolicy browsePagePolicy,
+            RecommendedVpinsBehavior recommendedVpinsBehavior, TagFirstBrowseBehavior tagFirstBrowseBehavior) {
         this.browseBehaviorConfig = browseBehaviorConfig;
         this.botCommandService = botCommandService;
+        this.actionContextFactory = actionContextFactory;
+        this.browsePagePolicy = browsePagePolicy;
+        this.recommendedVpinsBehavior = recommendedVpinsBehavior;
+        this.tagFirstBrowseBehavior = tagFirstBrowseBehavior;
     }
 
     /**
@@ -65,19 +82,48 @@ public class BotActionExecutor {
                 executeFunction(bot, function);
             }
         } finally {
+            tagFirstBrowseBehavior.endSession(bot.getId());
             bot.setActive(false);
             template.convertAndSend("/topic/botstatus", bot.getId() + ":Offline");
         }
     }
 
     private void executeFunction(BotModel bot, BotFunction function) throws Exception {
-        if (function.getFunction().equalsIgnoreCase("CREATE_VPIN")) {
-            botCommandService.executeCommands(bot, null);
-        } else {
-            VpinModel selectedVpin = browseBehaviorConfig.determineBrowseStrategy(bot, "READS", 5);
-            if (selectedVpin != null) {
-                botCommandService.executeCommands(bot, selectedVpin);
+        ActionContext context = actionContextFactory.create(bot);
+        try {
+            if (function.getFunction().equalsIgnoreCase("CREATE_VPIN")) {
+                botCommandService.executeCommands(context, null);
+            } else {
+                VpinModel selectedVpin = selectVpin(context);
+                if (selectedVpin != null) {
+                    botCommandService.executeCommands(context, selectedVpin);
+                }
             }
+        } finally {
+            actionContextFactory.complete(context);
+        }
+    }
+
+    /**
+     * Tries the browse strategies from cheapest to most expensive: the
+     * recommendations for the bot's last Vpin, the bot's session tag, then
+     * page browsing.
+     *
+     * @param context the action context
+     * @return the selected Vpin, or null if none was selected
+     */
+    private VpinModel selectVpin(ActionContext context) {
+        BotModel bot = context.getBot();
+        int pageSize = browsePagePolicy.pageSize(bot);
+        VpinModel selectedVpin = recommendedEnabled ? recommendedVpinsBehavior.selectRecommended(context) : null;
+        if (selectedVpin == null && tagFirstEnabled) {
+            selectedVpin = tagFirstBrowseBehavior.selectByTag(context, pageSize);
+        }
+        if (selectedVpin == null) {
+            // The strategy only receives the bot; it finds this action's
+            // context through the factory, which registered it on create.
+            selectedVpin = browseBehaviorConfig.determineBrowseStrategy(bot, "READS", pageSize);
         }
+        return selectedVpin;
     }
-}
\ No newline at end of file
+}
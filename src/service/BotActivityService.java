@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import com.osparks.vpin.bot.models.IntervalModel;
+import com.osparks.vpin.bot.util.ActivityHistogram;
+import com.osparks.vpin.bot.util.WeeklyActivityBitmap;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds each bot's schedule compiled into a {@link WeeklyActivityBitmap}, so
+ * that checking whether a bot is active is one bit test, and counts the
+ * active bots per minute of the week across the fleet for capacity planning.
+ * Bitmaps are replaced, never changed, so reads need no lock; the writes come
+ * from {@link ActiveBotService}.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+public class BotActivityService {
+    private volatile Map<String, WeeklyActivityBitmap> bitmaps = new ConcurrentHashMap<>();
+    private final Timer histogramTimer;
+
+    public BotActivityService(MeterRegistry meterRegistry) {
+        this.histogramTimer = Timer.builder("bots.activity.histogram.latency")
+                .description("Time taken to count active bots per minute of the week")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param botId the bot ID
+     * @param time  the date and time
+     * @return whether the bot's schedule covers the minute containing the time
+     */
+    public boolean isActive(String botId, LocalDateTime time) {
+        WeeklyActivityBitmap bitmap = bitmaps.get(botId);
+        return bitmap != null && bitmap.isActive(time);
+    }
+
+    /**
+     * @return the number of bots scheduled for each minute of the week, from Monday 00:00
+     */
+    public int[] histogram() {
+        long startedAt = System.nanoTime();
+        ActivityHistogram histogram = new ActivityHistogram();
+        for (WeeklyActivityBitmap bitmap : bitmaps.values()) {
+            histogram.add(bitmap);
+        }
+        int[] counts = histogram.counts();
+        histogramTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        return counts;
+    }
+
+    void put(String botId, List<IntervalModel> intervals) {
+        if (intervals == null || intervals.isEmpty()) {
+            bitmaps.remove(botId);
+        } else {
+            bitmaps.put(botId, WeeklyActivityBitmap.compile(intervals));
+        }
+    }
+
+    void replaceAll(Map<String, List<IntervalModel>> intervalsByBot) {
+        Map<String, WeeklyActivityBitmap> compiled = new ConcurrentHashMap<>(intervalsByBot.size() * 2);
+        for (Map.Entry<String, List<IntervalModel>> entry : intervalsByBot.entrySet()) {
+            if (entry.getValue() != null && !entry.getValue().isEmpty()) {
+                compiled.put(entry.getKey(), WeeklyActivityBitmap.compile(entry.getValue()));
+            }
+        }
+        bitmaps = compiled;
+    }
+}
@@ -20,6 +20,8 @@ import com.osparks.vpin.bot.dao.BotRepository;
 import com.osparks.vpin.bot.model.BotFunction;
 import com.osparks.vpin.bot.model.BotModel;
 import com.osparks.vpin.bot.model.VpinModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -36,6 +38,7 @@ import java.util.Map;
  */
 @Service
 public class BotCommandService {
+    private static final Logger log = LoggerFactory.getLogger(BotCommandService.class);
     private final Map<String, BotCommand> botCommands = new HashMap<>();
     private final BrowseBehaviorConfig browseBehaviorConfig;
     private final BotRepository botRepo;
@@ -51,19 +54,27 @@ public class BotCommandService {
     }
 
     /**
-     * Executes the commands for the given bot and Vpin.
+     * Executes the commands for the context's bot and the given Vpin. Every
+     * command shares the context, so resources fetched by one are reused by the
+     * next.
      *
-     * @param bot                     the bot model
+     * @param context                 the action context
      * @param vpinModelToInteractWith the Vpin model to interact with
      * @throws Exception if an error occurs during command execution
      */
-    public void executeCommands(BotModel bot, VpinModel vpinModelToInteractWith) throws Exception {
+    public void executeCommands(ActionContext context, VpinModel vpinModelToInteractWith) throws Exception {
+        BotModel bot = context.getBot();
         for (BotFunction function : bot.getFunctions()) {
             if (bot.shouldStop()) {
                 break;
             }
             BotCommand command = getCommand(function);
-            command.execute(bot, vpinModelToInteractWith);
+            if (vpinModelToInteractWith == null && command.requiresVpin()) {
+                // Nothing was created or selected for this command to act on.
+                log.info("Skipping {} for bot {}, no Vpin to act on", command.getCommandName(), bot.getId());
+                continue;
+            }
+            command.execute(context, vpinModelToInteractWith);
             vpinModelToInteractWith = command.getInteractedVpin();
         }
     }
@@ -20,6 +20,8 @@ import com.osparks.vpin.bot.dto.*;
 import com.osparks.vpin.bot.exceptions.BotLoginException;
 import com.osparks.vpin.bot.exceptions.OpenAIAPIException;
 import com.osparks.vpin.bot.model.BotModel;
+import com.osparks.vpin.bot.model.IntervalModel;
+import com.osparks.vpin.bot.util.WeeklyActivityBitmap;
 import org.quartz.SchedulerException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
@@ -53,15 +55,18 @@ public class BotCreateService {
     private final RemoteExchangeService remoteExchangeService;
     private final RestTemplate restTemplate;
     private final BotSchedulerService botSchedulerService;
+    private final ActiveBotService activeBotService;
 
     @Autowired
     public BotCreateService(BotRepository botRepo, VpinAuthenticationService vpinAuthenticationService,
-            RemoteExchangeService remoteExchangeService, BotSchedulerService botSchedulerService) {
+            RemoteExchangeService remoteExchangeService, BotSchedulerService botSchedulerService,
+            ActiveBotService activeBotService) {
         this.botRepo = botRepo;
         this.vpinAuthenticationService = vpinAuthenticationService;
         this.remoteExchangeService = remoteExchangeService;
         this.restTemplate = new RestTemplate();
         this.botSchedulerService = botSchedulerService;
+        this.activeBotService = activeBotService;
     }
 
     private static String fetchRandomGender() {
@@ -102,13 +107,19 @@ public class BotCreateService {
 
         this.populateBotProperties(botModel, password, createDate, vpinPlatformId);
         this.loginAndSaveBot(botModel);
+        activeBotService.update(botModel);
         botSchedulerService.rescheduleBot(botModel);
 
         return botModel;
     }
 
     private BotModel transformDtoToBot(BotDashFormData dto) {
-        return BotModel.fromDto(dto);
+        BotModel botModel = BotModel.fromDto(dto);
+        for (IntervalModel interval : botModel.getIntervals()) {
+            // Rejects unknown day names before the bot user is created remotely.
+            WeeklyActivityBitmap.dayMask(interval.getDaysOfWeek());
+        }
+        return botModel;
     }
 
     private String generateRandomPassword() {
@@ -19,6 +19,7 @@ import com.osparks.vpin.bot.jobs.BotJob;
 import com.osparks.vpin.bot.model.BotFunction;
 import com.osparks.vpin.bot.model.BotModel;
 import com.osparks.vpin.bot.model.IntervalModel;
+import com.osparks.vpin.bot.util.WeeklyActivityBitmap;
 import org.quartz.*;
 import org.quartz.impl.StdSchedulerFactory;
 import org.springframework.stereotype.Service;
@@ -27,19 +28,26 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.time.*;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
- * Service for scheduling bot actions.
+ * Service for scheduling bot actions. Each interval is scheduled on its next
+ * window: the one running now, or the next one starting on a day in its
+ * {@code daysOfWeek}. A window whose end is before its start runs past
+ * midnight.
  * 
  * @Author Christopher Leu (
  *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
  */
 @Service
 public class BotSchedulerService {
+    private final BotActivityService botActivityService;
     private StdSchedulerFactory factory;
     private Scheduler scheduler;
 
+    public BotSchedulerService(BotActivityService botActivityService) {
+        this.botActivityService = botActivityService;
+    }
+
     @PostConstruct
     public void init() throws SchedulerException {
         factory = new StdSchedulerFactory();
@@ -61,42 +69,53 @@ public class BotSchedulerService {
      * @throws SchedulerException if an error occurs during scheduling
      */
     public void rescheduleBot(BotModel botModel) throws SchedulerException {
+        LocalDateTime now = LocalDateTime.now();
         for (IntervalModel interval : botModel.getIntervals()) {
-            LocalDateTime nextActivationTime = calculateNextActivationTime(botModel, interval);
-            LocalDateTime nextDeactivationTime = calculateNextDeactivationTime(botModel, interval);
+            LocalDateTime nextActivationTime = calculateNextActivationTime(interval, now);
+            if (nextActivationTime == null) {
+                continue;
+            }
+            LocalDateTime nextDeactivationTime = calculateDeactivationTime(interval, nextActivationTime);
 
-            List<LocalTime> actionTimes = calculateDelaysForInterval(interval, interval.getActionsPerHour());
-            for (LocalTime actionTime : actionTimes) {
-                LocalDateTime dateTimeAction = LocalDateTime.of(nextActivationTime.toLocalDate(), actionTime);
-                if (dateTimeAction.isAfter(LocalDateTime.now()) && dateTimeAction.isBefore(nextDeactivationTime)) {
+            List<LocalDateTime> actionTimes = calculateDelaysForInterval(nextActivationTime, nextDeactivationTime,
+                    interval.getActionsPerHour());
+            for (LocalDateTime dateTimeAction : actionTimes) {
+                // The compiled schedule is the source of truth for when the bot is active.
+                if (dateTimeAction.isAfter(now) && botActivityService.isActive(botModel.getId(), dateTimeAction)) {
                     scheduleBotAction(botModel, dateTimeAction);
                 }
             }
         }
     }
 
-    private LocalDateTime calculateNextActivationTime(BotModel botModel, IntervalModel interval) {
-        LocalTime now = LocalTime.now();
-        LocalDate today = LocalDate.now();
-
-        if (now.isBefore(interval.getEndTime()) && now.isAfter(interval.getStartTime())) {
-            return LocalDateTime.of(today, now);
+    /**
+     * Finds the start of the interval's window that is running at, or starts
+     * next after, the given time. Yesterday is checked too, for an overnight
+     * window that is still running.
+     *
+     * @return the window's start, or null if the interval has no times
+     */
+    private LocalDateTime calculateNextActivationTime(IntervalModel interval, LocalDateTime now) {
+        if (interval.getStartTime() == null || interval.getEndTime() == null) {
+            return null;
         }
-
-        List<IntervalModel> sortedIntervals = botModel.getIntervals().stream()
-                .filter(i -> i.getStartTime().isAfter(now))
-                .sorted(Comparator.comparing(IntervalModel::getStartTime))
-                .collect(Collectors.toList());
-
-        if (sortedIntervals.isEmpty()) {
-            return LocalDateTime.of(today.plusDays(1), botModel.getIntervals().get(0).getStartTime());
-        } else {
-            return LocalDateTime.of(today, sortedIntervals.get(0).getStartTime());
+        int dayMask = WeeklyActivityBitmap.dayMask(interval.getDaysOfWeek());
+        for (int offset = -1; offset <= 7; offset++) {
+            LocalDate date = now.toLocalDate().plusDays(offset);
+            if ((dayMask & (1 << (date.getDayOfWeek().getValue() - 1))) == 0) {
+                continue;
+            }
+            LocalDateTime activation = LocalDateTime.of(date, interval.getStartTime());
+            if (calculateDeactivationTime(interval, activation).isAfter(now)) {
+                return activation;
+            }
         }
+        return null;
     }
 
-    private LocalDateTime calculateNextDeactivationTime(BotModel botModel, IntervalModel interval) {
-        return LocalDateTime.of(LocalDate.now(), interval.getEndTime());
+    private LocalDateTime calculateDeactivationTime(IntervalModel interval, LocalDateTime activation) {
+        LocalDateTime deactivation = LocalDateTime.of(activation.toLocalDate(), interval.getEndTime());
+        return deactivation.isAfter(activation) ? deactivation : deactivation.plusDays(1);
     }
 
     private void scheduleBotAction(BotModel botModel, LocalDateTime actionTime) throws SchedulerException {
@@ -120,15 +139,7 @@ public class BotSchedulerService {
      * @throws SchedulerException if an error occurs during scheduling
      */
     public void scheduleBot(BotModel botModel) throws SchedulerException {
-        for (IntervalModel interval : botModel.getIntervals()) {
-            for (BotFunction function : botModel.getFunctions()) {
-                List<LocalTime> actionTimes = calculateDelaysForInterval(interval, interval.getActionsPerHour());
-                for (LocalTime actionTime : actionTimes) {
-                    LocalDateTime dateTimeAction = LocalDateTime.of(LocalDate.now(), actionTime);
-                    scheduleBotAction(botModel, dateTimeAction);
-                }
-            }
-        }
+        rescheduleBot(botModel);
     }
 
     /**
@@ -145,27 +156,27 @@ public class BotSchedulerService {
         }
     }
 
-    private List<LocalTime> calculateDelaysForInterval(IntervalModel interval, int actionsPerHour) {
+    private List<LocalDateTime> calculateDelaysForInterval(LocalDateTime start, LocalDateTime end,
+            int actionsPerHour) {
+        List<LocalDateTime> actionTimes = new ArrayList<>();
+        if (actionsPerHour <= 0) {
+            return actionTimes;
+        }
         Random rand = new Random();
-        int totalMinutes = calcIntervalDuration(interval);
+        int totalMinutes = (int) Duration.between(start, end).toMinutes();
         int averageDelay = totalMinutes / actionsPerHour;
-
-        List<LocalTime> actionTimes = new ArrayList<>();
-        LocalTime start = interval.getStartTime();
+        if (averageDelay <= 0) {
+            return actionTimes;
+        }
 
         for (int i = 0; i < actionsPerHour; i++) {
             int fluctuation = rand.nextInt(averageDelay);
-            LocalTime actionTime = start.plusMinutes(((long) i * averageDelay) + fluctuation);
+            LocalDateTime actionTime = start.plusMinutes(((long) i * averageDelay) + fluctuation);
 
-            if (actionTime.isBefore(interval.getEndTime()) || actionTime.equals(interval.getEndTime())) {
+            if (!actionTime.isAfter(end)) {
                 actionTimes.add(actionTime);
             }
         }
         return actionTimes;
     }
-
-    private int calcIntervalDuration(IntervalModel interval) {
-        Duration duration = Duration.between(interval.getStartTime(), interval.getEndTime());
-        return (int) duration.toMinutes();
-    }
 }
\ No newline at end of file
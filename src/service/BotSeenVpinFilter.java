@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import com.osparks.vpin.bot.dao.BotRepository;
+import com.osparks.vpin.bot.dao.InteractionRollupRepository;
+import com.osparks.vpin.bot.models.BotModel;
+import com.osparks.vpin.bot.models.VpinModel;
+import com.osparks.vpin.bot.util.LongHashSet;
+import com.osparks.vpin.bot.util.VpinIdCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers, per bot, which Vpins it has already interacted with, so browsing
+ * can drop them before prompting. Each bot's set holds 64-bit fingerprints of
+ * Vpin IDs in a {@link LongHashSet}. It is loaded from Neo4j with an ID-only
+ * query the first time the bot browses, together with the Vpin IDs of its
+ * daily interaction rollups, and is updated on every interaction.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+public class BotSeenVpinFilter {
+    private static final Logger log = LoggerFactory.getLogger(BotSeenVpinFilter.class);
+    private final ConcurrentHashMap<String, LongHashSet> seenByBot = new ConcurrentHashMap<>();
+    private final BotRepository botRepo;
+    private final InteractionRollupRepository rollupRepo;
+    private final Counter filteredCounter;
+
+    public BotSeenVpinFilter(BotRepository botRepo, InteractionRollupRepository rollupRepo,
+            MeterRegistry meterRegistry) {
+        this.botRepo = botRepo;
+        this.rollupRepo = rollupRepo;
+        this.filteredCounter = Counter.builder("browse.seen.filtered")
+                .description("Browsed Vpins dropped because the bot already interacted with them")
+                .register(meterRegistry);
+        Gauge.builder("browse.seen.bytes", this, BotSeenVpinFilter::sizeInBytes)
+                .description("Heap used by the per-bot seen-Vpin sets")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Removes the Vpins the bot has already interacted with.
+     *
+     * @param bot   the bot model
+     * @param vpins the Vpins on a page
+     * @return the unseen Vpins, in page order
+     */
+    public List<VpinModel> removeSeen(BotModel bot, List<VpinModel> vpins) {
+        LongHashSet seen = seen(bot);
+        List<VpinModel> unseen = new ArrayList<>(vpins.size());
+        synchronized (seen) {
+            for (VpinModel vpin : vpins) {
+                if (vpin.getId() == null || !seen.contains(LongHashSet.fingerprint(vpin.getId()))) {
+                    unseen.add(vpin);
+                }
+            }
+        }
+        filteredCounter.increment(vpins.size() - unseen.size());
+        return unseen;
+    }
+
+    /**
+     * @param bot    the bot model
+     * @param vpinId the Vpin ID
+     * @return whether the bot has interacted with the Vpin
+     */
+    public boolean hasSeen(BotModel bot, String vpinId) {
+        LongHashSet seen = seen(bot);
+        synchronized (seen) {
+            return seen.contains(LongHashSet.fingerprint(vpinId));
+        }
+    }
+
+    /**
+     * Records an interaction of the bot with a Vpin.
+     *
+     * @param bot    the bot model
+     * @param vpinId the Vpin ID
+     */
+    public void markSeen(BotModel bot, String vpinId) {
+        if (vpinId == null) {
+            return;
+        }
+        LongHashSet seen = seen(bot);
+        synchronized (seen) {
+            seen.add(LongHashSet.fingerprint(vpinId));
+        }
+    }
+
+    /**
+     * Drops a bot's set, so that it is reloaded from Neo4j on next use.
+     *
+     * @param botId the bot ID
+     */
+    public void evict(String botId) {
+        seenByBot.remove(botId);
+    }
+
+    private LongHashSet seen(BotModel bot) {
+        LongHashSet seen = seenByBot.get(bot.getId());
+        if (seen != null) {
+            return seen;
+        }
+        // Load outside the map so the Neo4j queries do not hold a bin lock;
+        // if two threads race, the set that landed first wins.
+        seen = load(bot.getId());
+        LongHashSet winner = seenByBot.putIfAbsent(bot.getId(), seen);
+        return winner != null ? winner : seen;
+    }
+
+    private LongHashSet load(String botId) {
+        List<String> vpinIds = botRepo.findInteractedVpinIdsByBotId(botId);
+        LongHashSet seen = new LongHashSet(vpinIds.size());
+        for (String vpinId : vpinIds) {
+            seen.add(LongHashSet.fingerprint(vpinId));
+        }
+        for (byte[] rollupVpinIds : rollupRepo.findAllVpinIds(botId)) {
+            try {
+                for (String vpinId : VpinIdCodec.decode(rollupVpinIds)) {
+                    seen.add(LongHashSet.fingerprint(vpinId));
+                }
+            } catch (IllegalArgumentException e) {
+                log.error("Error decoding rolled up Vpin IDs of bot " + botId + ": ", e);
+            }
+        }
+        return seen;
+    }
+
+    private double sizeInBytes() {
+        long bytes = 0;
+        for (LongHashSet seen : seenByBot.values()) {
+            bytes += seen.sizeInBytes();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import com.osparks.vpin.bot.dao.BotRepository;
+import com.osparks.vpin.bot.models.BotModel;
+import com.osparks.vpin.bot.util.BrowseCursor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Holds one {@link BrowseCursor} per bot, so bots browsing at the same time do
+ * not move each other's pages. Cursors are updated with compare-and-set and
+ * written to their Bot nodes in batches; a bot resumes from its stored cursor
+ * after a restart.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+public class BrowseCursorStore {
+    private static final Logger log = LoggerFactory.getLogger(BrowseCursorStore.class);
+    private final ConcurrentHashMap<String, AtomicReference<BrowseCursor>> cursors = new ConcurrentHashMap<>();
+    private final Set<String> dirtyBotIds = ConcurrentHashMap.newKeySet();
+    private final BotRepository botRepo;
+    private final DistributionSummary pagesPerSelection;
+
+    public BrowseCursorStore(BotRepository botRepo, MeterRegistry meterRegistry) {
+        this.botRepo = botRepo;
+        this.pagesPerSelection = DistributionSummary.builder("browse.pages.per.selection")
+                .description("Pages fetched per successful Vpin selection")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the bot's cursor for a sort order. A bot seen for the first time
+     * starts from the cursor stored on its node; switching sort order restarts
+     * at the first item.
+     *
+     * @param bot  the bot model
+     * @param sort the sort order to browse
+     * @return the bot's cursor
+     */
+    public BrowseCursor get(BotModel bot, String sort) {
+        AtomicReference<BrowseCursor> ref = cursors.computeIfAbsent(bot.getId(),
+                id -> new AtomicReference<>(storedCursor(bot, sort)));
+        BrowseCursor cursor = ref.get();
+        if (sort.equals(cursor.sort())) {
+            return cursor;
+        }
+        return update(bot, current -> sort.equals(current.sort()) ? current : BrowseCursor.start(sort));
+    }
+
+    /**
+     * Advances the bot's cursor past a page on which nothing was selected.
+     *
+     * @param bot        the bot model
+     * @param nextOffset the position just past the evaluated page
+     * @return the updated cursor
+     */
+    public BrowseCursor recordMiss(BotModel bot, int nextOffset) {
+        return update(bot, cursor -> cursor.missed(nextOffset));
+    }
+
+    /**
+     * Moves the bot's cursor back to the first item after it ran past the end
+     * of the list.
+     *
+     * @param bot the bot model
+     * @return the updated cursor
+     */
+    public BrowseCursor rewind(BotModel bot) {
+        return update(bot, BrowseCursor::rewound);
+    }
+
+    /**
+     * Records a selection on the bot's current page.
+     *
+     * @param bot the bot model
+     * @return the number of pages fetched for this selection
+     */
+    public int recordHit(BotModel bot) {
+        AtomicReference<BrowseCursor> ref = reference(bot);
+        BrowseCursor previous = ref.getAndUpdate(BrowseCursor::hit);
+        apply(bot, ref.get());
+        int pages = previous.pagesSinceHit() + 1;
+        pagesPerSelection.record(pages);
+        return pages;
+    }
+
+    /**
+     * Writes the cursors changed since the last flush to their Bot nodes in one
+     * statement.
+     */
+    @Scheduled(fixedDelayString = "${browse.cursor.flush-interval-ms:30000}")
+    public void flush() {
+        if (dirtyBotIds.isEmpty()) {
+            return;
+        }
+        List<Map<String, Object>> rows = new ArrayList<>();
+        Iterator<String> iterator = dirtyBotIds.iterator();
+        while (iterator.hasNext()) {
+            String botId = iterator.next();
+            iterator.remove();
+            BrowseCursor cursor = cursors.get(botId).get();
+            Map<String, Object> row = new HashMap<>();
+            row.put("botId", botId);
+            row.put("sort", cursor.sort());
+            row.put("offset", cursor.offset());
+            row.put("noneStreak", cursor.noneStreak());
+            rows.add(row);
+        }
+
+        try {
+            botRepo.saveBrowseCursors(rows);
+        } catch (Exception e) {
+            log.error("Error saving browse cursors: ", e);
+            for (Map<String, Object> row : rows) {
+                dirtyBotIds.add((String) row.get("botId"));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private BrowseCursor update(BotModel bot, UnaryOperator<BrowseCursor> change) {
+        BrowseCursor cursor = reference(bot).updateAndGet(change);
+        apply(bot, cursor);
+        return cursor;
+    }
+
+    private AtomicReference<BrowseCursor> reference(BotModel bot) {
+        return cursors.computeIfAbsent(bot.getId(),
+                id -> new AtomicReference<>(storedCursor(bot, bot.getBrowseSort())));
+    }
+
+    /**
+     * Copies the cursor onto the bot so that saving the bot does not write back
+     * an older position, and queues it for the next flush.
+     */
+    private void apply(BotModel bot, BrowseCursor cursor) {
+        bot.setBrowseSort(cursor.sort());
+        bot.setBrowseOffset(cursor.offset());
+        bot.setBrowseNoneStreak(cursor.noneStreak());
+        dirtyBotIds.add(bot.getId());
+    }
+
+    private static BrowseCursor storedCursor(BotModel bot, String sort) {
+        if (bot.getBrowseSort() == null || !bot.getBrowseSort().equals(sort)) {
+            return BrowseCursor.start(sort);
+        }
+        return new BrowseCursor(sort, bot.getBrowseOffset() == null ? 0 : bot.getBrowseOffset(),
+                bot.getBrowseNoneStreak() == null ? 0 : bot.getBrowseNoneStreak(), 0);
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import com.osparks.vpin.bot.models.BotModel;
+
+/**
+ * Decides how many Vpins a bot evaluates per LLM call and how many pages it
+ * may fetch for one selection. The implementation is chosen with
+ * {@code browse.page-policy}.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+public interface BrowsePagePolicy {
+    /**
+     * @param bot the bot about to browse
+     * @return the number of Vpins per page
+     */
+    int pageSize(BotModel bot);
+
+    /**
+     * @param bot      the bot about to browse
+     * @param pageSize the page size returned by {@link #pageSize(BotModel)}
+     * @return the maximum number of pages to evaluate for one selection
+     */
+    int maxAttempts(BotModel bot, int pageSize);
+
+    /**
+     * Records the outcome of one evaluated page.
+     *
+     * @param bot            the bot that browsed
+     * @param vpinsEvaluated the number of Vpins on the page
+     * @param selected       whether a Vpin was selected from the page
+     */
+    void recordPage(BotModel bot, int vpinsEvaluated, boolean selected);
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Video URLs waiting to be turned into Vpins by CREATE_VPIN. The queue is
+ * seeded from {@code vpin.creation.videos} and is bounded, so a producer that
+ * outpaces the bots is refused rather than growing the heap.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+public class CuratedVideoQueue {
+    private final LinkedBlockingQueue<String> videoUrls;
+
+    public CuratedVideoQueue(@Value("${vpin.creation.videos:}") List<String> seedVideoUrls,
+            @Value("${vpin.creation.video-queue.capacity:1000}") int capacity, MeterRegistry meterRegistry) {
+        this.videoUrls = new LinkedBlockingQueue<>(capacity);
+        for (String videoUrl : seedVideoUrls) {
+            offer(videoUrl);
+        }
+        Gauge.builder("vpin.creation.videos.queued", videoUrls, LinkedBlockingQueue::size)
+                .description("Video URLs waiting to be turned into Vpins")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Adds a video URL to the end of the queue.
+     *
+     * @param videoUrl the video URL
+     * @return false if the URL is blank or the queue is full
+     */
+    public boolean offer(String videoUrl) {
+        if (videoUrl == null || videoUrl.isBlank()) {
+            return false;
+        }
+        return videoUrls.offer(videoUrl.trim());
+    }
+
+    /**
+     * @return the next video URL, or null if the queue is empty
+     */
+    public String poll() {
+        return videoUrls.poll();
+    }
+
+    public int size() {
+        return videoUrls.size();
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import com.osparks.vpin.bot.models.BotModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Browses every bot with the same page size and attempt cap.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+@ConditionalOnProperty(name = "browse.page-policy", havingValue = "fixed")
+public class FixedBrowsePagePolicy implements BrowsePagePolicy {
+    private final int pageSize;
+    private final int maxAttempts;
+
+    public FixedBrowsePagePolicy(@Value("${browse.policy.fixed.page-size:5}") int pageSize,
+            @Value("${browse.policy.fixed.max-attempts:15}") int maxAttempts) {
+        this.pageSize = pageSize;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Override
+    public int pageSize(BotModel bot) {
+        return pageSize;
+    }
+
+    @Override
+    public int maxAttempts(BotModel bot, int pageSize) {
+        return maxAttempts;
+    }
+
+    @Override
+    public void recordPage(BotModel bot, int vpinsEvaluated, boolean selected) {
+        // nothing to learn
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import com.osparks.vpin.bot.models.BotModel;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sizes browse pages from each bot's observed hit rate, the share of evaluated
+ * Vpins it ends up selecting. A page is made large enough that it yields a
+ * selection with probability {@code browse.policy.page-hit-target}, limited by
+ * how many Vpins fit in the prompt token budget. The attempt cap then covers
+ * enough Vpins to reach a selection with probability
+ * {@code browse.policy.selection-confidence}.
+ * <p>
+ * Picky personas therefore evaluate larger pages in fewer calls, while easy
+ * ones keep pages small. At most one Vpin is selected per page, so the hit
+ * rate is estimated from the share of pages with no selection, which is
+ * {@code (1 - hitRate)^pageSize}, rather than from selections per Vpin, which
+ * would understate it for any page holding more than one match. The counts
+ * decay so that a bot's recent pages weigh most, and start from a prior hit
+ * rate of about one in five.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+@ConditionalOnProperty(name = "browse.page-policy", havingValue = "hit-rate", matchIfMissing = true)
+public class HitRateBrowsePagePolicy implements BrowsePagePolicy {
+    // Two pages of about three Vpins, one of them missed: a hit rate near 0.2.
+    private static final double PRIOR_PAGES = 2.0;
+    private static final double PRIOR_MISSED_PAGES = 1.0;
+    private static final double PRIOR_VPINS = 6.2;
+
+    private final ConcurrentHashMap<String, AtomicReference<HitStats>> statsByBot = new ConcurrentHashMap<>();
+    private final DistributionSummary pageSizeSummary;
+    private final int minPageSize;
+    private final int maxPageSize;
+    private final int maxAttempts;
+    private final double pageHitTarget;
+    private final double selectionConfidence;
+    private final double decay;
+
+    public HitRateBrowsePagePolicy(MeterRegistry meterRegistry,
+            @Value("${browse.policy.prompt-token-budget:1500}") int promptTokenBudget,
+            @Value("${browse.policy.tokens-per-vpin:40}") int tokensPerVpin,
+            @Value("${browse.policy.min-page-size:3}") int minPageSize,
+            @Value("${browse.policy.max-attempts:15}") int maxAttempts,
+            @Value("${browse.policy.page-hit-target:0.5}") double pageHitTarget,
+            @Value("${browse.policy.selection-confidence:0.95}") double selectionConfidence,
+            @Value("${browse.policy.decay:0.9}") double decay) {
+        this.minPageSize = minPageSize;
+        this.maxPageSize = Math.max(minPageSize, promptTokenBudget / tokensPerVpin);
+        this.maxAttempts = maxAttempts;
+        this.pageHitTarget = pageHitTarget;
+        this.selectionConfidence = selectionConfidence;
+        this.decay = decay;
+        this.pageSizeSummary = DistributionSummary.builder("browse.page.size")
+                .description("Vpins per browse page chosen by the page policy")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public int pageSize(BotModel bot) {
+        double hitRate = hitRate(bot);
+        int pageSize = hitRate >= 1.0 ? minPageSize
+                : (int) Math.ceil(Math.log(1.0 - pageHitTarget) / Math.log(1.0 - hitRate));
+        pageSize = Math.max(minPageSize, Math.min(maxPageSize, pageSize));
+        pageSizeSummary.record(pageSize);
+        return pageSize;
+    }
+
+    @Override
+    public int maxAttempts(BotModel bot, int pageSize) {
+        double hitRate = hitRate(bot);
+        if (hitRate >= 1.0) {
+            return 1;
+        }
+        double vpinsNeeded = Math.log(1.0 - selectionConfidence) / Math.log(1.0 - hitRate);
+        int attempts = (int) Math.ceil(vpinsNeeded / pageSize);
+        return Math.max(1, Math.min(maxAttempts, attempts));
+    }
+
+    @Override
+    public void recordPage(BotModel bot, int vpinsEvaluated, boolean selected) {
+        if (vpinsEvaluated <= 0) {
+            return;
+        }
+        stats(bot).updateAndGet(stats -> new HitStats(stats.pages() * decay + 1.0,
+                stats.missedPages() * decay + (selected ? 0.0 : 1.0), stats.vpins() * decay + vpinsEvaluated));
+    }
+
+    /**
+     * @return the bot's estimated probability of selecting any one Vpin
+     */
+    double hitRate(BotModel bot) {
+        HitStats stats = stats(bot).get();
+        double pages = stats.pages() + PRIOR_PAGES;
+        double missedShare = (stats.missedPages() + PRIOR_MISSED_PAGES) / pages;
+        double averagePageSize = (stats.vpins() + PRIOR_VPINS) / pages;
+        return 1.0 - Math.pow(missedShare, 1.0 / averagePageSize);
+    }
+
+    private AtomicReference<HitStats> stats(BotModel bot) {
+        return statsByBot.computeIfAbsent(bot.getId(), id -> new AtomicReference<>(new HitStats(0.0, 0.0, 0.0)));
+    }
+
+    private record HitStats(double pages, double missedPages, double vpins) {
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import com.osparks.vpin.bot.dao.InteractionRollupRepository;
+import com.osparks.vpin.bot.dao.InteractionRollupRepository.ExpiredDay;
+import com.osparks.vpin.bot.dao.InteractionRollupRepository.Interaction;
+import com.osparks.vpin.bot.util.VpinIdCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the raw LIKED, COMMENTED_ON, REPLIED_TO and
+ * INTERACTED_WITH_COMMENT_UNDER relationships of each bot to the last
+ * {@code interactions.retention.retain-days} days. Older ones are folded, a
+ * whole day at a time, into the bot's (:InteractionRollup) for that day and
+ * deleted, so loading a BotModel costs the same however long the bot has run.
+ * CREATED relationships are kept, since bots create few Vpins.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+public class InteractionRetentionJob {
+    private static final Logger log = LoggerFactory.getLogger(InteractionRetentionJob.class);
+
+    private final InteractionRollupRepository rollupRepo;
+    private final Counter foldedCounter;
+    private final Counter rollupCounter;
+    private final Timer runTimer;
+    private final boolean enabled;
+    private final int retainDays;
+    private final int daysPerRun;
+
+    public InteractionRetentionJob(InteractionRollupRepository rollupRepo, MeterRegistry meterRegistry,
+            @Value("${interactions.retention.enabled:true}") boolean enabled,
+            @Value("${interactions.retention.retain-days:30}") int retainDays,
+            @Value("${interactions.retention.days-per-run:1000}") int daysPerRun) {
+        this.rollupRepo = rollupRepo;
+        this.enabled = enabled;
+        this.retainDays = retainDays;
+        this.daysPerRun = daysPerRun;
+
+        this.foldedCounter = Counter.builder("interactions.retention.folded")
+                .description("Raw interaction relationships folded into daily rollups")
+                .register(meterRegistry);
+        this.rollupCounter = Counter.builder("interactions.retention.rollups")
+                .description("Daily rollups written by the retention job")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("interactions.retention.run.latency")
+                .description("Time taken by one run of the interaction retention job")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Folds up to {@code interactions.retention.days-per-run} expired bot days.
+     * A backlog is worked off over several runs.
+     */
+    @Scheduled(fixedDelayString = "${interactions.retention.interval-ms:3600000}",
+            initialDelayString = "${interactions.retention.initial-delay-ms:300000}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        // The cutoff falls on a day boundary, so a folded day never gets raw interactions back.
+        LocalDateTime cutoff = LocalDate.now().minusDays(retainDays).atStartOfDay();
+        long folded = 0;
+        try {
+            for (ExpiredDay day : rollupRepo.findExpiredDays(cutoff, daysPerRun)) {
+                try {
+                    folded += fold(day);
+                } catch (Exception e) {
+                    log.error("Error folding interactions of bot " + day.botId() + " on " + day.day() + ": ", e);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error finding expired interactions: ", e);
+        }
+        runTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        if (folded > 0) {
+            log.info("Folded {} interactions older than {} into daily rollups", folded, cutoff);
+        }
+    }
+
+    private long fold(ExpiredDay day) {
+        List<Interaction> interactions = rollupRepo.findInteractions(day.botId(), day.day().atStartOfDay(),
+                day.day().plusDays(1).atStartOfDay());
+        if (interactions.isEmpty()) {
+            return 0;
+        }
+        Set<String> vpinIds = new HashSet<>(VpinIdCodec.decode(rollupRepo.findVpinIds(day.botId(), day.day())));
+        List<Long> relationshipIds = new ArrayList<>(interactions.size());
+        for (Interaction interaction : interactions) {
+            relationshipIds.add(interaction.relationshipId());
+            // REPLIED_TO points at a comment; the Vpin it sits under comes with INTERACTED_WITH_COMMENT_UNDER.
+            if (!"REPLIED_TO".equals(interaction.type())) {
+                vpinIds.add(interaction.targetId());
+            }
+        }
+        long folded = rollupRepo.fold(day.botId(), day.day(), relationshipIds, VpinIdCodec.encode(vpinIds));
+        foldedCounter.increment(folded);
+        rollupCounter.increment();
+        return folded;
+    }
+}
@@ -0,0 +1,311 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import com.osparks.vpin.bot.dao.BotRepository;
+import com.osparks.vpin.bot.models.BotModel;
+import com.osparks.vpin.bot.models.VpinModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes bot interactions to Neo4j behind the action threads. Events are
+ * queued and flushed by one thread as a single UNWIND statement every
+ * {@code interactions.writer.batch-size} events or
+ * {@code interactions.writer.flush-interval-ms}, whichever comes first.
+ * <p>
+ * When the queue stays full for {@code interactions.writer.offer-timeout-ms},
+ * the action thread writes its event itself, which slows the bots down to
+ * what Neo4j can take instead of dropping events. Direct writes are also used
+ * when the writer is disabled and, one event at a time, for a batch that
+ * failed. The queue is flushed on shutdown.
+ * <p>
+ * This queue is the canonical write path. The {@link ActionJournalService}
+ * is off by default; when {@code interactions.journal.enabled} is set it
+ * replaces the queue: events are appended to the local journal and projected
+ * into Neo4j from there, so they survive a crash or a Neo4j outage. Queued
+ * events are lost on a crash.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+public class InteractionWriter {
+    private static final Logger log = LoggerFactory.getLogger(InteractionWriter.class);
+
+    private final BotRepository botRepo;
+    private final ActionJournalService actionJournalService;
+    private final BotSeenVpinFilter botSeenVpinFilter;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+    private final BlockingQueue<Event> queue;
+    private final DistributionSummary batchSizeSummary;
+    private final Timer flushTimer;
+    private volatile boolean running;
+    private Thread flusher;
+
+    public InteractionWriter(BotRepository botRepo, ActionJournalService actionJournalService,
+            BotSeenVpinFilter botSeenVpinFilter, MeterRegistry meterRegistry,
+            @Value("${interactions.writer.enabled:true}") boolean enabled,
+            @Value("${interactions.writer.batch-size:100}") int batchSize,
+            @Value("${interactions.writer.flush-interval-ms:1000}") long flushIntervalMillis,
+            @Value("${interactions.writer.queue-capacity:10000}") int queueCapacity,
+            @Value("${interactions.writer.offer-timeout-ms:1000}") long offerTimeoutMillis) {
+        this.botRepo = botRepo;
+        this.actionJournalService = actionJournalService;
+        this.botSeenVpinFilter = botSeenVpinFilter;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSizeSummary = DistributionSummary.builder("interactions.writer.batch.size")
+                .description("Interaction events written per Neo4j transaction")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("interactions.writer.flush.latency")
+                .description("Time to write one batch of interaction events")
+                .register(meterRegistry);
+        Gauge.builder("interactions.writer.queue.depth", queue, BlockingQueue::size)
+                .description("Interaction events waiting to be written")
+                .register(meterRegistry);
+    }
+
+    public enum Type {
+        LIKED, COMMENTED_ON, CREATED, REPLIED_TO
+    }
+
+    private record Event(Type type, String botId, Map<String, Object> vpin, String commentId,
+                         LocalDateTime interactionDate) {
+
+        private Map<String, Object> toRow() {
+            Map<String, Object> row = new HashMap<>();
+            row.put("type", type.name());
+            row.put("botId", botId);
+            row.put("vpin", vpin);
+            row.put("commentId", commentId);
+            row.put("interactionDate", interactionDate);
+            return row;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || actionJournalService.isActive()) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "interaction-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        List<Event> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int from = 0; from < remaining.size(); from += batchSize) {
+            write(remaining.subList(from, Math.min(remaining.size(), from + batchSize)));
+        }
+    }
+
+    /**
+     * Records that the bot liked the Vpin and updates its last interacted Vpin.
+     *
+     * @param bot  the bot model
+     * @param vpin the liked Vpin
+     */
+    public void recordLiked(BotModel bot, VpinModel vpin) {
+        record(bot, Type.LIKED, vpin, null);
+    }
+
+    /**
+     * Records that the bot commented on the Vpin and updates its last
+     * interacted Vpin.
+     *
+     * @param bot  the bot model
+     * @param vpin the Vpin commented on
+     */
+    public void recordCommentedOn(BotModel bot, VpinModel vpin) {
+        record(bot, Type.COMMENTED_ON, vpin, null);
+    }
+
+    /**
+     * Records that the bot created the Vpin and updates its last interacted
+     * Vpin.
+     *
+     * @param bot  the bot model
+     * @param vpin the created Vpin
+     */
+    public void recordCreated(BotModel bot, VpinModel vpin) {
+        record(bot, Type.CREATED, vpin, null);
+    }
+
+    /**
+     * Records that the bot replied to a comment under the Vpin and updates its
+     * last interacted Vpin.
+     *
+     * @param bot       the bot model
+     * @param vpin      the Vpin the comment is under
+     * @param commentId the ID of the comment replied to
+     */
+    public void recordRepliedTo(BotModel bot, VpinModel vpin, String commentId) {
+        record(bot, Type.REPLIED_TO, vpin, commentId);
+    }
+
+    private void record(BotModel bot, Type type, VpinModel vpin, String commentId) {
+        bot.setLastInteractedVpinId(vpin.getId());
+        // Marked here with the bot and Vpin of this write, since the command
+        // beans are shared between the action threads.
+        botSeenVpinFilter.markSeen(bot, vpin.getId());
+        Event event = new Event(type, bot.getId(), BotRepository.vpinProperties(vpin), commentId,
+                LocalDateTime.now());
+        if (!enabled) {
+            writeDirect(event, "disabled");
+            return;
+        }
+        if (actionJournalService.isActive()) {
+            journal(event);
+            return;
+        }
+        try {
+            if (queue.offer(event, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeDirect(event, "backpressure");
+    }
+
+    private void journal(Event event) {
+        try {
+            actionJournalService.append(event.type(), event.botId(), event.vpin(), event.commentId(),
+                    event.interactionDate());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writeDirect(event, "journal_error");
+        } catch (Exception e) {
+            log.error("Error journaling " + event.type() + " interaction of bot " + event.botId() + ": ", e);
+            writeDirect(event, "journal_error");
+        }
+    }
+
+    private void flushLoop() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Event first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Event next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    /**
+     * Writes the events in one transaction, falling back to writing them one
+     * by one if the batch fails.
+     */
+    private void write(List<Event> batch) {
+        List<Map<String, Object>> rows = new ArrayList<>(batch.size());
+        for (Event event : batch) {
+            rows.add(event.toRow());
+        }
+        long startedAt = System.nanoTime();
+        try {
+            botRepo.saveInteractions(rows);
+            batchSizeSummary.record(batch.size());
+        } catch (Exception e) {
+            log.error("Error writing batch of " + batch.size() + " interactions, writing them one by one: ", e);
+            for (Event event : batch) {
+                writeDirect(event, "batch_failure");
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void writeDirect(Event event, String reason) {
+        Counter.builder("interactions.writer.direct")
+                .description("Interaction events written outside a batch, by reason")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        try {
+            switch (event.type()) {
+                case LIKED -> botRepo.mergeLiked(event.botId(), event.vpin(), event.interactionDate());
+                case COMMENTED_ON -> botRepo.mergeCommentedOn(event.botId(), event.vpin(), event.interactionDate());
+                case CREATED -> botRepo.mergeCreated(event.botId(), event.vpin(), event.interactionDate());
+                case REPLIED_TO -> botRepo.mergeRepliedTo(event.botId(), event.vpin(), event.commentId(),
+                        event.interactionDate());
+            }
+        } catch (Exception e) {
+            log.error("Error writing " + event.type() + " interaction of bot " + event.botId() + ": ", e);
+        }
+    }
+}
@@ -17,9 +17,11 @@ package com.osparks.vpin.bot.service;
 
 import com.osparks.vpin.bot.dto.OpenAIChatRequest;
 import com.osparks.vpin.bot.dto.OpenAIGeneralResponse;
+import com.osparks.vpin.bot.dto.OpenAIStructuredChatRequest;
 import com.osparks.vpin.bot.dto.VpinCreationResponse;
 import com.osparks.vpin.bot.exceptions.OpenAIAPIException;
 import com.osparks.vpin.bot.model.BotModel;
+import com.osparks.vpin.bot.util.StructuredResponseType;
 import java.net.http.HttpHeaders;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
@@ -35,6 +37,11 @@ import org.springframework.web.client.RestTemplate;
  */
 @Service
 public class OpenAIService {
+    /**
+     * Model used for prompts answered with a strict JSON schema.
+     */
+    private static final String STRUCTURED_MODEL = "gpt-4o-mini";
+
     private final RestTemplate restTemplate;
     private final String openaiApiKey;
     @Value("${openai.api.uri}")
@@ -111,13 +118,15 @@ public class OpenAIService {
      * @param botModel     the bot model containing user details
      * @param interests    the interests of the user
      * @param vpinInfoText the information text about the Vpin
-     * @return an OpenAIGeneralResponse containing the response from OpenAI
+     * @return an OpenAIGeneralResponse whose content is a
+     *         {@link StructuredResponseType#BROWSE_INDEX} payload
      */
-    public OpenAIGeneralResponse browseVpins(BotModel botModel, String interests, String vpinInfoText) {
+    public OpenAIGeneralResponse browseVpins(BotModel botModel, CharSequence interests, CharSequence vpinInfoText) {
         String prompt = String.format("""
                 placeholder
                 """, botModel.getAge(), botModel.getGender(), botModel.getOccupation(), interests, vpinInfoText);
-        OpenAIChatRequest reqOneVpin = new OpenAIChatRequest("gpt-3.5-turbo", prompt, 128, 0.5F);
+        OpenAIChatRequest reqOneVpin = new OpenAIStructuredChatRequest(STRUCTURED_MODEL, prompt, 128, 0.5F,
+                StructuredResponseType.BROWSE_INDEX);
         return postRequest(reqOneVpin, OpenAIGeneralResponse.class);
     }
 
@@ -128,13 +137,15 @@ public class OpenAIService {
      * @param botModel  the bot model containing user details
      * @param interests the interests of the user
      * @param tags      the tags to browse
-     * @return an OpenAIGeneralResponse containing the response from OpenAI
+     * @return an OpenAIGeneralResponse whose content is a
+     *         {@link StructuredResponseType#TAG} payload
      */
-    public OpenAIGeneralResponse browseTags(BotModel botModel, String interests, String tags) {
+    public OpenAIGeneralResponse browseTags(BotModel botModel, CharSequence interests, CharSequence tags) {
         String prompt = String.format("""
                 placeholder
                 """, botModel.getAge(), botModel.getGender(), botModel.getOccupation(), interests, tags);
-        OpenAIChatRequest reqOneTag = new OpenAIChatRequest("gpt-3.5-turbo", prompt, 128, 0.5F);
+        OpenAIChatRequest reqOneTag = new OpenAIStructuredChatRequest(STRUCTURED_MODEL, prompt, 128, 0.5F,
+                StructuredResponseType.TAG);
         return postRequest(reqOneTag, OpenAIGeneralResponse.class);
     }
 
@@ -144,13 +155,15 @@ public class OpenAIService {
      * @param botModel  the bot model containing user details
      * @param interests the interests of the user
      * @param vpinInfo  the information about the Vpin
-     * @return an OpenAIGeneralResponse containing the generated comment
+     * @return an OpenAIGeneralResponse whose content is a
+     *         {@link StructuredResponseType#COMMENT} payload
      */
-    public OpenAIGeneralResponse commentVpin(BotModel botModel, String interests, String vpinInfo) {
+    public OpenAIGeneralResponse commentVpin(BotModel botModel, CharSequence interests, CharSequence vpinInfo) {
         String prompt = String.format("""
                 placeholder
                  """, botModel.getAge(), botModel.getGender(), botModel.getOccupation(), interests, vpinInfo);
-        OpenAIChatRequest reqComment = new OpenAIChatRequest("gpt-3.5-turbo", prompt, 256, 0.5F);
+        OpenAIChatRequest reqComment = new OpenAIStructuredChatRequest(STRUCTURED_MODEL, prompt, 256, 0.5F,
+                StructuredResponseType.COMMENT);
         return postRequest(reqComment, OpenAIGeneralResponse.class);
     }
 
@@ -160,13 +173,15 @@ public class OpenAIService {
      * @param botModel  the bot model containing user details
      * @param interests the interests of the user
      * @param comments  the comments to reply to
-     * @return an OpenAIGeneralResponse containing the generated reply
+     * @return an OpenAIGeneralResponse whose content is a
+     *         {@link StructuredResponseType#REPLY} payload
      */
-    public OpenAIGeneralResponse replyComment(BotModel botModel, String interests, String comments) {
+    public OpenAIGeneralResponse replyComment(BotModel botModel, CharSequence interests, CharSequence comments) {
         String prompt = String.format("""
                 placeholder
                  """, botModel.getAge(), botModel.getGender(), botModel.getOccupation(), interests, comments);
-        OpenAIChatRequest reqComment = new OpenAIChatRequest("gpt-3.5-turbo", prompt, 256, 0.5F);
+        OpenAIChatRequest reqComment = new OpenAIStructuredChatRequest(STRUCTURED_MODEL, prompt, 256, 0.5F,
+                StructuredResponseType.REPLY);
         return postRequest(reqComment, OpenAIGeneralResponse.class);
     }
 }
\ No newline at end of file
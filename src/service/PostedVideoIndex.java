@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import com.osparks.vpin.bot.dao.VpinRepository;
+import com.osparks.vpin.bot.util.LongHashSet;
+import com.osparks.vpin.bot.util.VideoUrlNormalizer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Videos that already have a Vpin, or are queued to get one, keyed by
+ * {@link VideoUrlNormalizer} key. Posted videos are held as 64-bit
+ * fingerprints in a {@link LongHashSet}, loaded on first use from the video
+ * URLs of the Vpins in Neo4j, so the index survives restarts without a file of
+ * its own. Queued videos are claimed, so two feeds or two bots cannot queue
+ * the same video at once.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+public class PostedVideoIndex {
+    private final VpinRepository vpinRepo;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private LongHashSet posted;
+
+    public PostedVideoIndex(VpinRepository vpinRepo, MeterRegistry meterRegistry) {
+        this.vpinRepo = vpinRepo;
+        Gauge.builder("video.posted.index.size", this, PostedVideoIndex::postedCount)
+                .description("Videos known to already have a Vpin")
+                .register(meterRegistry);
+        Gauge.builder("video.posted.index.pending", pending, Set::size)
+                .description("Videos queued for Vpin creation")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param videoUrl the video URL, in any form
+     * @return true if a Vpin already exists for the video
+     */
+    public boolean isPosted(String videoUrl) {
+        String key = VideoUrlNormalizer.normalize(videoUrl);
+        return key != null && isPostedKey(key);
+    }
+
+    /**
+     * Claims a video for creation.
+     *
+     * @param videoUrl the video URL, in any form
+     * @return false if the video is already posted or claimed
+     */
+    public boolean claim(String videoUrl) {
+        String key = VideoUrlNormalizer.normalize(videoUrl);
+        return key != null && !isPostedKey(key) && pending.add(key);
+    }
+
+    /**
+     * Gives up a claim after creation failed, so the video can be queued again.
+     *
+     * @param videoUrl the video URL, in any form
+     */
+    public void release(String videoUrl) {
+        String key = VideoUrlNormalizer.normalize(videoUrl);
+        if (key != null) {
+            pending.remove(key);
+        }
+    }
+
+    /**
+     * Records that a Vpin was created for the video, ending its claim.
+     *
+     * @param videoUrl the video URL, in any form
+     */
+    public void markPosted(String videoUrl) {
+        String key = VideoUrlNormalizer.normalize(videoUrl);
+        if (key == null) {
+            return;
+        }
+        synchronized (this) {
+            posted().add(LongHashSet.fingerprint(key));
+        }
+        pending.remove(key);
+    }
+
+    private synchronized boolean isPostedKey(String key) {
+        return posted().contains(LongHashSet.fingerprint(key));
+    }
+
+    private synchronized int postedCount() {
+        return posted == null ? 0 : posted.size();
+    }
+
+    private LongHashSet posted() {
+        if (posted == null) {
+            List<String> videoUrls = vpinRepo.findAllVideoUrls();
+            LongHashSet loaded = new LongHashSet(videoUrls.size());
+            for (String videoUrl : videoUrls) {
+                String key = VideoUrlNormalizer.normalize(videoUrl);
+                if (key != null) {
+                    loaded.add(LongHashSet.fingerprint(key));
+                }
+            }
+            posted = loaded;
+        }
+        return posted;
+    }
+}
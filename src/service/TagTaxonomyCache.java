@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import com.osparks.vpin.bot.models.TagModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Caches the Vpin tag taxonomy returned by {@link VpinService#getTags}. The
+ * cache is refreshed in the background and, if a refresh was missed, on the
+ * first read after {@code tags.taxonomy.ttl-ms}. A failed refresh keeps serving
+ * the previous taxonomy and is not retried on read for a minute.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+public class TagTaxonomyCache {
+    private static final Logger log = LoggerFactory.getLogger(TagTaxonomyCache.class);
+    private static final long RETRY_BACKOFF_MILLIS = 60_000L;
+    private final VpinService vpinService;
+    private final VpinAuthenticationService vpinAuthenticationService;
+    private final long ttlMillis;
+    private final Counter refreshedCounter;
+    private final Counter failedCounter;
+    private volatile long lastAttemptAtMillis;
+    private volatile Taxonomy taxonomy = new Taxonomy(Collections.emptyList(), "", Collections.emptyMap(), 0L);
+
+    public TagTaxonomyCache(VpinService vpinService, VpinAuthenticationService vpinAuthenticationService,
+            MeterRegistry meterRegistry, @Value("${tags.taxonomy.ttl-ms:3600000}") long ttlMillis) {
+        this.vpinService = vpinService;
+        this.vpinAuthenticationService = vpinAuthenticationService;
+        this.ttlMillis = ttlMillis;
+        this.refreshedCounter = Counter.builder("tags.taxonomy.refresh")
+                .tag("outcome", "success")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("tags.taxonomy.refresh")
+                .tag("outcome", "failure")
+                .register(meterRegistry);
+        Gauge.builder("tags.taxonomy.size", this, cache -> cache.taxonomy.tags().size())
+                .description("Tags in the cached taxonomy")
+                .register(meterRegistry);
+        Gauge.builder("tags.taxonomy.refreshed.at", this, cache -> cache.taxonomy.refreshedAtMillis() / 1000.0)
+                .description("Epoch seconds of the last successful taxonomy refresh")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the cached tags
+     */
+    public List<TagModel> getTags() {
+        return current().tags();
+    }
+
+    /**
+     * @return the cached tags as a comma separated list, as used in prompts
+     */
+    public String getTagsText() {
+        return current().tagsText();
+    }
+
+    /**
+     * Matches a tag name, ignoring case, against the taxonomy.
+     *
+     * @param tag the tag name
+     * @return the tag name as spelled in the taxonomy, or null if it is not in it
+     */
+    public String canonicalize(String tag) {
+        return tag == null ? null : current().tagsByLowerCase().get(tag.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Reloads the taxonomy from the Vpin API.
+     */
+    @Scheduled(fixedDelayString = "${tags.taxonomy.refresh-interval-ms:1800000}",
+            initialDelayString = "${tags.taxonomy.initial-delay-ms:0}")
+    public synchronized void refresh() {
+        lastAttemptAtMillis = System.currentTimeMillis();
+        try {
+            List<TagModel> tags = List.copyOf(vpinService.getTags(vpinAuthenticationService.getClientToken()));
+            StringBuilder tagsText = new StringBuilder();
+            Map<String, String> tagsByLowerCase = new HashMap<>();
+            for (TagModel tag : tags) {
+                if (!tagsText.isEmpty()) {
+                    tagsText.append(", ");
+                }
+                tagsText.append(tag.getTag());
+                tagsByLowerCase.put(tag.getTag().toLowerCase(Locale.ROOT), tag.getTag());
+            }
+            taxonomy = new Taxonomy(tags, tagsText.toString(), tagsByLowerCase, System.currentTimeMillis());
+            refreshedCounter.increment();
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.error("Error refreshing the tag taxonomy: ", e);
+        }
+    }
+
+    private Taxonomy current() {
+        Taxonomy current = taxonomy;
+        long now = System.currentTimeMillis();
+        if (now - current.refreshedAtMillis() > ttlMillis && now - lastAttemptAtMillis > RETRY_BACKOFF_MILLIS) {
+            synchronized (this) {
+                if (taxonomy == current && now - lastAttemptAtMillis > RETRY_BACKOFF_MILLIS) {
+                    refresh();
+                }
+            }
+            current = taxonomy;
+        }
+        return current;
+    }
+
+    private record Taxonomy(List<TagModel> tags, String tagsText, Map<String, String> tagsByLowerCase,
+            long refreshedAtMillis) {
+    }
+}
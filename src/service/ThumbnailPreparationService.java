@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shrinks thumbnails before they are uploaded as cover images. Images larger
+ * than {@code vpin.thumbnails.max-width} by {@code vpin.thumbnails.max-height}
+ * are scaled down, keeping their aspect ratio, and everything is re-encoded as
+ * JPEG at {@code vpin.thumbnails.jpeg-quality}. The original is kept when it
+ * already fits and re-encoding would not make it smaller, or when the JDK
+ * cannot decode it. A re-encoded thumbnail is named {@link #JPEG_FILENAME},
+ * so the upload can label it as JPEG whatever format it was downloaded in.
+ * <p>
+ * This is CPU work; the creation pipeline runs it on its own bounded stage so
+ * it never holds up the threads waiting on the network.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+public class ThumbnailPreparationService {
+    /**
+     * File name of the thumbnails this service re-encoded.
+     */
+    public static final String JPEG_FILENAME = "cover.jpg";
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailPreparationService.class);
+    private final int maxWidth;
+    private final int maxHeight;
+    private final float jpegQuality;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary bytesBefore;
+    private final DistributionSummary bytesAfter;
+    private final Timer prepareTimer;
+
+    public ThumbnailPreparationService(MeterRegistry meterRegistry,
+            @Value("${vpin.thumbnails.max-width:1280}") int maxWidth,
+            @Value("${vpin.thumbnails.max-height:720}") int maxHeight,
+            @Value("${vpin.thumbnails.jpeg-quality:0.8}") float jpegQuality) {
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.jpegQuality = jpegQuality;
+        this.meterRegistry = meterRegistry;
+        this.bytesBefore = bytesSummary(meterRegistry, "before");
+        this.bytesAfter = bytesSummary(meterRegistry, "after");
+        this.prepareTimer = Timer.builder("thumbnails.prepare.latency")
+                .description("Time spent resizing and re-encoding a thumbnail")
+                .register(meterRegistry);
+        ImageIO.setUseCache(false);
+    }
+
+    private static DistributionSummary bytesSummary(MeterRegistry meterRegistry, String stage) {
+        return DistributionSummary.builder("thumbnails.prepare.bytes")
+                .description("Thumbnail size before and after preparation")
+                .baseUnit("bytes")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Prepares a thumbnail for upload.
+     *
+     * @param thumbnail the thumbnail as downloaded, or null
+     * @return the prepared thumbnail, or the original if it cannot be improved
+     */
+    public Resource prepare(Resource thumbnail) {
+        if (thumbnail == null) {
+            return null;
+        }
+        long startedAt = System.nanoTime();
+        try {
+            long originalSize = thumbnail.contentLength();
+            bytesBefore.record(originalSize);
+
+            BufferedImage image;
+            try (InputStream in = thumbnail.getInputStream()) {
+                image = ImageIO.read(in);
+            }
+            if (image == null) {
+                count("unsupported");
+                bytesAfter.record(originalSize);
+                return thumbnail;
+            }
+
+            boolean resized = image.getWidth() > maxWidth || image.getHeight() > maxHeight;
+            byte[] encoded = encodeJpeg(resized ? scale(image) : image);
+            if (!resized && encoded.length >= originalSize) {
+                count("kept");
+                bytesAfter.record(originalSize);
+                return thumbnail;
+            }
+            count(resized ? "resized" : "recompressed");
+            bytesAfter.record(encoded.length);
+            return new ByteArrayResource(encoded) {
+                @Override
+                public String getFilename() {
+                    return JPEG_FILENAME;
+                }
+            };
+        } catch (IOException | RuntimeException e) {
+            log.error("Error preparing thumbnail, uploading it unchanged: ", e);
+            count("error");
+            return thumbnail;
+        } finally {
+            prepareTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Scales the image to fit the maximum size, halving first while it is more
+     * than twice too large so that bilinear filtering does not drop detail.
+     */
+    private BufferedImage scale(BufferedImage image) {
+        double factor = Math.min((double) maxWidth / image.getWidth(), (double) maxHeight / image.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * factor));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * factor));
+
+        BufferedImage scaled = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            scaled = draw(scaled, width, height);
+        } while (width != targetWidth || height != targetHeight);
+        return scaled;
+    }
+
+    /**
+     * Draws the image onto an opaque RGB canvas, which is what the JPEG writer
+     * expects; transparent areas become white.
+     */
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+            image = draw(image, image.getWidth(), image.getHeight());
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private void count(String outcome) {
+        Counter.builder("thumbnails.prepare")
+                .description("Thumbnails prepared for upload by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
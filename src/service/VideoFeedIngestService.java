@@ -0,0 +1,324 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.osparks.vpin.bot.util.VideoUrlNormalizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Feeds lists of video URLs into the {@link CuratedVideoQueue}. Lists are
+ * streamed line by line, either as NDJSON (a string or an object with a
+ * {@code url} or {@code videoUrl} field per line) or as CSV (the {@code url}
+ * column, or the first column without a header). Videos that are already
+ * posted or queued are dropped by the {@link PostedVideoIndex}.
+ * <p>
+ * Lists come from {@code POST /videos/feed} or from files dropped into
+ * {@code video.feed.watch-dir}. Files should be moved into the directory
+ * once fully written; each is ingested once and then moved to its
+ * {@code processed} subdirectory.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+public class VideoFeedIngestService {
+    private static final Logger log = LoggerFactory.getLogger(VideoFeedIngestService.class);
+    private static final String PROCESSED_DIR = "processed";
+
+    private final CuratedVideoQueue curatedVideoQueue;
+    private final PostedVideoIndex postedVideoIndex;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final String watchDir;
+    private WatchService watchService;
+    private Thread watcher;
+
+    public VideoFeedIngestService(CuratedVideoQueue curatedVideoQueue, PostedVideoIndex postedVideoIndex,
+            ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${video.feed.watch-dir:}") String watchDir) {
+        this.curatedVideoQueue = curatedVideoQueue;
+        this.postedVideoIndex = postedVideoIndex;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.watchDir = watchDir;
+    }
+
+    public enum Format {
+        NDJSON, CSV;
+
+        /**
+         * @param name a file name or content type
+         * @return the format it names, or null if it names neither
+         */
+        public static Format detect(String name) {
+            if (name == null) {
+                return null;
+            }
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (lower.endsWith(".csv") || lower.contains("csv")) {
+                return CSV;
+            }
+            if (lower.endsWith(".ndjson") || lower.endsWith(".jsonl") || lower.contains("ndjson")
+                    || lower.contains("json")) {
+                return NDJSON;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Counts of what happened to the lines of one list.
+     *
+     * @param accepted   videos added to the queue
+     * @param duplicates videos already posted or queued
+     * @param invalid    lines without a usable URL
+     * @param rejected   videos dropped because the queue was full
+     */
+    public record IngestResult(int accepted, int duplicates, int invalid, int rejected) {
+    }
+
+    /**
+     * Streams a list of video URLs into the queue.
+     *
+     * @param reader the list
+     * @param format the list format
+     * @param source where the list came from, for metrics
+     * @return the counts for the list
+     * @throws IOException if the list cannot be read
+     */
+    public IngestResult ingest(Reader reader, Format format, String source) throws IOException {
+        int accepted = 0;
+        int duplicates = 0;
+        int invalid = 0;
+        int rejected = 0;
+        BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        int urlColumn = 0;
+        boolean firstLine = true;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String videoUrl;
+            if (format == Format.CSV) {
+                List<String> cells = parseCsvLine(line);
+                if (firstLine && !looksLikeUrl(cells.get(0))) {
+                    firstLine = false;
+                    urlColumn = Math.max(0, headerColumn(cells));
+                    continue;
+                }
+                videoUrl = urlColumn < cells.size() ? cells.get(urlColumn) : null;
+            } else {
+                videoUrl = parseJsonLine(line);
+            }
+            firstLine = false;
+
+            String outcome;
+            if (!looksLikeUrl(videoUrl)) {
+                invalid++;
+                outcome = "invalid";
+            } else if (!postedVideoIndex.claim(videoUrl)) {
+                duplicates++;
+                outcome = "duplicate";
+            } else if (!curatedVideoQueue.offer(videoUrl)) {
+                postedVideoIndex.release(videoUrl);
+                rejected++;
+                outcome = "rejected";
+            } else {
+                accepted++;
+                outcome = "accepted";
+            }
+            count(source, outcome);
+        }
+        IngestResult result = new IngestResult(accepted, duplicates, invalid, rejected);
+        log.info("Ingested video feed from {}: {}", source, result);
+        return result;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (watchDir == null || watchDir.isBlank()) {
+            return;
+        }
+        Path directory = Paths.get(watchDir);
+        Files.createDirectories(directory.resolve(PROCESSED_DIR));
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+
+        watcher = new Thread(() -> watch(directory), "video-feed-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    /**
+     * Ingests the files already in the directory, then each new one.
+     */
+    private void watch(Path directory) {
+        try (DirectoryStream<Path> existing = Files.newDirectoryStream(directory)) {
+            for (Path file : existing) {
+                ingestFile(file);
+            }
+        } catch (IOException e) {
+            log.error("Error listing video feed directory: ", e);
+        }
+
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path name) {
+                        ingestFile(directory.resolve(name));
+                    }
+                }
+                if (!key.reset()) {
+                    log.error("Video feed directory is no longer watched: {}", directory);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Stopped.
+        }
+    }
+
+    private void ingestFile(Path file) {
+        Format format = Format.detect(file.getFileName().toString());
+        if (format == null || !Files.isRegularFile(file)) {
+            return;
+        }
+        try {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                ingest(reader, format, "file");
+            }
+            Files.move(file, file.resolveSibling(PROCESSED_DIR).resolve(file.getFileName()),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.error("Error ingesting video feed file " + file + ": ", e);
+        }
+    }
+
+    private String parseJsonLine(String line) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            if (node.isTextual()) {
+                return node.asText();
+            }
+            for (String field : new String[]{"url", "videoUrl", "video_url"}) {
+                if (node.hasNonNull(field)) {
+                    return node.get(field).asText();
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Skipping unparseable video feed line: {}", line);
+        }
+        return null;
+    }
+
+    private static int headerColumn(List<String> header) {
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT).replace("_", "");
+            if (name.equals("url") || name.equals("videourl")) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Splits a CSV line into cells, honouring double-quoted cells with
+     * doubled quotes inside them.
+     */
+    private static List<String> parseCsvLine(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString().trim());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString().trim());
+        return cells;
+    }
+
+    private static boolean looksLikeUrl(String value) {
+        if (value == null || value.isBlank() || VideoUrlNormalizer.normalize(value) == null) {
+            return false;
+        }
+        String trimmed = value.trim();
+        return trimmed.indexOf(' ') < 0 && trimmed.indexOf('.') > 0;
+    }
+
+    private void count(String source, String outcome) {
+        Counter.builder("video.feed.ingested")
+                .description("Video feed entries by source and outcome")
+                .tag("source", source)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
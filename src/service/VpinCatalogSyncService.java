@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import com.osparks.vpin.bot.dto.OAuth2TokenResponse;
+import com.osparks.vpin.bot.models.VpinModel;
+import com.osparks.vpin.bot.util.VpinCatalog;
+import com.osparks.vpin.bot.util.VpinSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the {@link VpinCatalog} in step with the Vpin API. Each sync walks the
+ * /list pages newest first and stops at the first page that reaches Vpins
+ * already mirrored, so a quiet catalog costs one page request per run.
+ * <p>
+ * When {@code vpin.mirror.snapshot-path} is set, the catalog is written to a
+ * memory-mapped snapshot after every sync that added Vpins, and loaded from it
+ * on startup. Loading decodes the records straight from the mapping into the
+ * catalog in batches, without first reading the file onto the heap.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+public class VpinCatalogSyncService {
+    private static final Logger log = LoggerFactory.getLogger(VpinCatalogSyncService.class);
+    private static final int SNAPSHOT_MAGIC = 0x56504E43;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER_BYTES = 4 + 4 + 4 + 8;
+    private static final int SNAPSHOT_LOAD_BATCH = 1024;
+
+    private final VpinCatalog vpinCatalog;
+    private final VpinService vpinService;
+    private final VpinAuthenticationService vpinAuthenticationService;
+    private final Counter syncedCounter;
+    private final boolean enabled;
+    private final int pageSize;
+    private final int maxPagesPerSync;
+    private final String snapshotPath;
+
+    public VpinCatalogSyncService(VpinCatalog vpinCatalog, VpinService vpinService,
+            VpinAuthenticationService vpinAuthenticationService, MeterRegistry meterRegistry,
+            @Value("${vpin.mirror.enabled:true}") boolean enabled,
+            @Value("${vpin.mirror.page-size:50}") int pageSize,
+            @Value("${vpin.mirror.max-pages:20}") int maxPagesPerSync,
+            @Value("${vpin.mirror.snapshot-path:}") String snapshotPath) {
+        this.vpinCatalog = vpinCatalog;
+        this.vpinService = vpinService;
+        this.vpinAuthenticationService = vpinAuthenticationService;
+        this.enabled = enabled;
+        this.pageSize = pageSize;
+        this.maxPagesPerSync = maxPagesPerSync;
+        this.snapshotPath = snapshotPath;
+
+        this.syncedCounter = Counter.builder("vpin.mirror.synced")
+                .description("Vpins added to the local catalog mirror")
+                .register(meterRegistry);
+        Gauge.builder("vpin.mirror.size", vpinCatalog, VpinCatalog::size)
+                .description("Vpins held by the local catalog mirror")
+                .register(meterRegistry);
+        Gauge.builder("vpin.mirror.age.seconds", vpinCatalog,
+                        catalog -> catalog.getLastSyncedAtMillis() == 0 ? Double.NaN
+                                : (System.currentTimeMillis() - catalog.getLastSyncedAtMillis()) / 1000.0)
+                .description("Seconds since the local catalog mirror last synced")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled && !snapshotPath.isEmpty()) {
+            loadSnapshot(Paths.get(snapshotPath));
+        }
+    }
+
+    /**
+     * Pulls the Vpins published since the last sync into the catalog.
+     */
+    @Scheduled(fixedDelayString = "${vpin.mirror.sync-interval-ms:60000}",
+            initialDelayString = "${vpin.mirror.initial-delay-ms:0}")
+    public void sync() {
+        if (!enabled) {
+            return;
+        }
+        long newestMirrored = vpinCatalog.getNewestCreatedAtMillis();
+        int added = 0;
+        try {
+            OAuth2TokenResponse tokenResponse = vpinAuthenticationService.getClientToken();
+            List<VpinSummary> fetched = new ArrayList<>();
+            // Empty mirror: any run of pages from the first is a contiguous newest-first prefix.
+            boolean connected = newestMirrored == 0;
+            for (int page = 0; page < maxPagesPerSync; page++) {
+                List<VpinModel> vpins = vpinService.getVpinsFromRemote(tokenResponse,
+                        vpinCatalog.getRecencySort(), page, pageSize);
+                for (VpinModel vpin : vpins) {
+                    VpinSummary summary = VpinSummary.fromModel(vpin);
+                    fetched.add(summary);
+                    if (newestMirrored > 0 && summary.createdAtMillis() <= newestMirrored
+                            && vpinCatalog.contains(summary.id())) {
+                        connected = true;
+                    }
+                }
+                if (vpins.size() < pageSize) {
+                    connected = true;
+                    break;
+                }
+                if (connected) {
+                    break;
+                }
+            }
+
+            if (connected) {
+                added = vpinCatalog.upsertAll(fetched);
+            } else {
+                // More Vpins were published than one sync reads, so the mirror
+                // no longer joins onto the newest pages. Start over from them.
+                log.warn("Vpin catalog mirror fell more than {} pages behind, replacing it", maxPagesPerSync);
+                added = vpinCatalog.replaceAll(fetched);
+            }
+            vpinCatalog.markSynced(System.currentTimeMillis());
+        } catch (Exception e) {
+            log.error("Error syncing the Vpin catalog mirror: ", e);
+            return;
+        }
+
+        syncedCounter.increment(added);
+        if (added > 0 && !snapshotPath.isEmpty()) {
+            writeSnapshot(Paths.get(snapshotPath));
+        }
+    }
+
+    private void writeSnapshot(Path path) {
+        List<VpinSummary> summaries = vpinCatalog.findAll();
+        long bytes = SNAPSHOT_HEADER_BYTES;
+        for (VpinSummary summary : summaries) {
+            bytes += 8 + 4 + 4 + 4 + stringBytes(summary.id()) + stringBytes(summary.textContent())
+                    + stringBytes(summary.createdAt()) + stringBytes(summary.videoUrl())
+                    + stringBytes(summary.videoPlatform());
+            for (String tag : summary.tags()) {
+                bytes += stringBytes(tag);
+            }
+        }
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(summaries.size())
+                    .putLong(vpinCatalog.getLastSyncedAtMillis());
+            for (VpinSummary summary : summaries) {
+                buffer.putLong(summary.createdAtMillis()).putInt(summary.likeCount())
+                        .putInt(summary.commentCount()).putInt(summary.tags().length);
+                putString(buffer, summary.id());
+                putString(buffer, summary.textContent());
+                putString(buffer, summary.createdAt());
+                putString(buffer, summary.videoUrl());
+                putString(buffer, summary.videoPlatform());
+                for (String tag : summary.tags()) {
+                    putString(buffer, tag);
+                }
+            }
+            buffer.force();
+        } catch (IOException e) {
+            log.error("Error writing the Vpin catalog snapshot: ", e);
+            return;
+        }
+
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Error replacing the Vpin catalog snapshot: ", e);
+        }
+    }
+
+    private void loadSnapshot(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+                log.warn("Ignoring Vpin catalog snapshot with unknown format: {}", path);
+                return;
+            }
+            int count = buffer.getInt();
+            long syncedAtMillis = buffer.getLong();
+
+            List<VpinSummary> batch = new ArrayList<>(Math.min(count, SNAPSHOT_LOAD_BATCH));
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < count; i++) {
+                long createdAtMillis = buffer.getLong();
+                int likeCount = buffer.getInt();
+                int commentCount = buffer.getInt();
+                String[] tags = new String[buffer.getInt()];
+                String id = getString(buffer, scratch);
+                String textContent = getString(buffer, scratch);
+                String createdAt = getString(buffer, scratch);
+                String videoUrl = getString(buffer, scratch);
+                String videoPlatform = getString(buffer, scratch);
+                for (int t = 0; t < tags.length; t++) {
+                    tags[t] = getString(buffer, scratch);
+                }
+                batch.add(new VpinSummary(id, textContent, createdAt, createdAtMillis, videoUrl,
+                        videoPlatform, likeCount, commentCount, tags));
+                if (batch.size() == SNAPSHOT_LOAD_BATCH) {
+                    vpinCatalog.upsertAll(batch);
+                    batch.clear();
+                }
+            }
+            vpinCatalog.upsertAll(batch);
+            vpinCatalog.markSynced(syncedAtMillis);
+            log.info("Loaded {} Vpins from catalog snapshot {}", count, path);
+        } catch (IOException | RuntimeException e) {
+            log.error("Error reading the Vpin catalog snapshot: ", e);
+        }
+    }
+
+    private static int stringBytes(String value) {
+        return 4 + (value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static void putString(MappedByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    /**
+     * Decodes a string at the buffer's position, through a scratch array
+     * shared by the load rather than a new array per string.
+     */
+    private static String getString(MappedByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > scratch.length) {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
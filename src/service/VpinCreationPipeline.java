@@ -0,0 +1,272 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.service;
+
+import com.osparks.vpin.bot.dto.VpinCreationResponse;
+import com.osparks.vpin.bot.util.VideoMetadata;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates Vpins in six stages: video info fetch, thumbnail fetch, thumbnail
+ * preparation, upload, tag enrichment and tag update. Each stage has its own bounded queue and worker
+ * threads, and hands a job to the next stage with a blocking put, so a slow
+ * stage holds back the ones before it instead of letting work pile up. With
+ * every stage busy, throughput is set by the slowest stage rather than by the
+ * sum of all of them. Thumbnail preparation is CPU bound and defaults to one
+ * worker per processor; the other stages mostly wait on the network.
+ * <p>
+ * The tag stages run after the Vpin exists; if they fail the job still
+ * completes with the untagged Vpin.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Service
+public class VpinCreationPipeline {
+    private static final Logger log = LoggerFactory.getLogger(VpinCreationPipeline.class);
+    private final VpinCreationService vpinCreationService;
+    private final ThumbnailPreparationService thumbnailPreparationService;
+    private final MeterRegistry meterRegistry;
+    private final long submitTimeoutMillis;
+    private final Stage infoStage;
+    private final Stage thumbnailStage;
+    private final Stage prepareStage;
+    private final Stage uploadStage;
+    private final Stage tagStage;
+    private final Stage tagUpdateStage;
+    private final List<Stage> stages = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+
+    public VpinCreationPipeline(VpinCreationService vpinCreationService,
+            ThumbnailPreparationService thumbnailPreparationService, MeterRegistry meterRegistry,
+            @Value("${vpin.creation.pipeline.queue-capacity:16}") int queueCapacity,
+            @Value("${vpin.creation.pipeline.submit-timeout-ms:5000}") long submitTimeoutMillis,
+            @Value("${vpin.creation.pipeline.info.workers:2}") int infoWorkers,
+            @Value("${vpin.creation.pipeline.thumbnail.workers:4}") int thumbnailWorkers,
+            @Value("${vpin.creation.pipeline.prepare.workers:0}") int prepareWorkers,
+            @Value("${vpin.creation.pipeline.upload.workers:2}") int uploadWorkers,
+            @Value("${vpin.creation.pipeline.tags.workers:2}") int tagWorkers,
+            @Value("${vpin.creation.pipeline.tag-update.workers:2}") int tagUpdateWorkers) {
+        this.vpinCreationService = vpinCreationService;
+        this.thumbnailPreparationService = thumbnailPreparationService;
+        this.meterRegistry = meterRegistry;
+        this.submitTimeoutMillis = submitTimeoutMillis;
+        this.infoStage = stage("info", infoWorkers, queueCapacity, false, this::fetchInfo);
+        this.thumbnailStage = stage("thumbnail", thumbnailWorkers, queueCapacity, false, this::fetchThumbnail);
+        this.prepareStage = stage("prepare",
+                prepareWorkers > 0 ? prepareWorkers : Runtime.getRuntime().availableProcessors(), queueCapacity,
+                false, this::prepareThumbnail);
+        this.uploadStage = stage("upload", uploadWorkers, queueCapacity, false, this::upload);
+        this.tagStage = stage("tags", tagWorkers, queueCapacity, true, this::fetchTags);
+        this.tagUpdateStage = stage("tag-update", tagUpdateWorkers, queueCapacity, true, this::updateTags);
+    }
+
+    @PostConstruct
+    public void start() {
+        for (Stage stage : stages) {
+            for (int i = 1; i <= stage.workers(); i++) {
+                Thread thread = new Thread(() -> work(stage), "vpin-create-" + stage.name() + "-" + i);
+                thread.setDaemon(true);
+                workers.add(thread);
+                thread.start();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Stage stage : stages) {
+            List<Job> pending = new ArrayList<>();
+            stage.queue().drainTo(pending);
+            for (Job job : pending) {
+                job.result.completeExceptionally(new CancellationException("Vpin creation pipeline stopped"));
+            }
+        }
+    }
+
+    /**
+     * Queues a video to be turned into a Vpin.
+     *
+     * @param accessToken the access token of the bot creating the Vpin
+     * @param videoUrl    the video URL
+     * @return the created Vpin, completed once the last stage has run; fails
+     *         with {@link RejectedExecutionException} if the first stage stays
+     *         full for {@code vpin.creation.pipeline.submit-timeout-ms}
+     */
+    public CompletableFuture<VpinCreationResponse.Vpin> submit(String accessToken, String videoUrl) {
+        Job job = new Job(accessToken, videoUrl);
+        try {
+            if (!infoStage.queue().offer(job, submitTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                job.result.completeExceptionally(new RejectedExecutionException(
+                        "Vpin creation pipeline is full, video not queued: " + videoUrl));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.result.completeExceptionally(e);
+        }
+        return job.result;
+    }
+
+    private void fetchInfo(Job job) throws Exception {
+        job.videoInfo = vpinCreationService.fetchVideoInfo(job.accessToken, job.videoUrl);
+        hand(job, thumbnailStage);
+    }
+
+    private void fetchThumbnail(Job job) throws Exception {
+        job.thumbnail = vpinCreationService.fetchThumbnail(job.videoInfo);
+        hand(job, prepareStage);
+    }
+
+    private void prepareThumbnail(Job job) throws Exception {
+        job.thumbnail = thumbnailPreparationService.prepare(job.thumbnail);
+        hand(job, uploadStage);
+    }
+
+    private void upload(Job job) throws Exception {
+        job.vpin = vpinCreationService.uploadVpin(job.accessToken, job.videoUrl, job.videoInfo, job.thumbnail);
+        job.videoInfo = null;
+        job.thumbnail = null;
+        hand(job, tagStage);
+    }
+
+    private void fetchTags(Job job) throws Exception {
+        job.tags = vpinCreationService.fetchTagsForVpin(job.accessToken, job.vpin);
+        if (job.tags == null || job.tags.length == 0) {
+            job.result.complete(job.vpin);
+            return;
+        }
+        hand(job, tagUpdateStage);
+    }
+
+    private void updateTags(Job job) {
+        VpinCreationResponse.Vpin updated = vpinCreationService.updateCreateVpinTags(job.accessToken, job.vpin,
+                job.tags);
+        job.result.complete(updated != null ? updated : job.vpin);
+    }
+
+    /**
+     * Passes the job to the next stage, waiting while that stage's queue is full.
+     */
+    private static void hand(Job job, Stage next) throws InterruptedException {
+        next.queue().put(job);
+    }
+
+    private void work(Stage stage) {
+        while (!Thread.currentThread().isInterrupted()) {
+            Job job;
+            try {
+                job = stage.queue().take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long startedAt = System.nanoTime();
+            try {
+                stage.step().run(job);
+                stage.succeeded().increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.result.completeExceptionally(new CancellationException("Vpin creation pipeline stopped"));
+            } catch (Exception e) {
+                stage.failed().increment();
+                if (stage.optional() && job.vpin != null) {
+                    log.error("Error in Vpin creation stage " + stage.name() + ", keeping Vpin " + job.vpin.getId()
+                            + " without tags: ", e);
+                    job.result.complete(job.vpin);
+                } else {
+                    log.error("Error in Vpin creation stage " + stage.name() + " for " + job.videoUrl + ": ", e);
+                    job.result.completeExceptionally(e);
+                }
+            } finally {
+                stage.timer().record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private Stage stage(String name, int workers, int queueCapacity, boolean optional, StageStep step) {
+        BlockingQueue<Job> queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("vpin.creation.stage.queue.depth", queue, BlockingQueue::size)
+                .description("Jobs waiting for a Vpin creation stage")
+                .tag("stage", name)
+                .register(meterRegistry);
+        Stage stage = new Stage(name, Math.max(1, workers), optional, queue, step,
+                processed(name, "success"), processed(name, "failure"),
+                Timer.builder("vpin.creation.stage.latency")
+                        .description("Time spent in a Vpin creation stage")
+                        .tag("stage", name)
+                        .register(meterRegistry));
+        stages.add(stage);
+        return stage;
+    }
+
+    private Counter processed(String stage, String outcome) {
+        return Counter.builder("vpin.creation.stage.processed")
+                .description("Jobs processed by a Vpin creation stage")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    private interface StageStep {
+        void run(Job job) throws Exception;
+    }
+
+    private record Stage(String name, int workers, boolean optional, BlockingQueue<Job> queue, StageStep step,
+                         Counter succeeded, Counter failed, Timer timer) {
+    }
+
+    /**
+     * One video moving through the stages. Only one stage holds a job at a
+     * time, and the queues publish its fields to the next stage's thread.
+     */
+    private static final class Job {
+        private final String accessToken;
+        private final String videoUrl;
+        private final CompletableFuture<VpinCreationResponse.Vpin> result = new CompletableFuture<>();
+        private VideoMetadata videoInfo;
+        private Resource thumbnail;
+        private VpinCreationResponse.Vpin vpin;
+        private String[] tags;
+
+        private Job(String accessToken, String videoUrl) {
+            this.accessToken = accessToken;
+            this.videoUrl = videoUrl;
+        }
+    }
+}
@@ -19,8 +19,14 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.osparks.vpin.bot.dto.CreateVpinRequest;
 import com.osparks.vpin.bot.dto.UpdateVpinRequest;
 import com.osparks.vpin.bot.dto.VpinCreationResponse;
+import com.osparks.vpin.bot.util.ThumbnailCache;
+import com.osparks.vpin.bot.util.VideoMetadata;
+import com.osparks.vpin.bot.util.VideoMetadataCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
@@ -29,7 +35,6 @@ import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
-import java.net.http.HttpHeaders;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.UUID;
@@ -42,6 +47,7 @@ import java.util.UUID;
  */
 @Service
 public class VpinCreationService {
+    private static final Logger log = LoggerFactory.getLogger(VpinCreationService.class);
 
     @Value("${vpin.server-uri}")
     private String apiServerUrl;
@@ -54,9 +60,16 @@ public class VpinCreationService {
     private OpenAIService openAIService;
     @Autowired
     private SimpMessagingTemplate template;
+    @Autowired
+    private ThumbnailCache thumbnailCache;
+    @Autowired
+    private ThumbnailPreparationService thumbnailPreparationService;
+    @Autowired
+    private VideoMetadataCache videoMetadataCache;
 
     /**
-     * Creates a Vpin using the given access token and video URL.
+     * Creates a Vpin using the given access token and video URL, running every
+     * creation stage on the calling thread.
      *
      * @param accessToken the access token
      * @param videoUrl    the video URL
@@ -64,19 +77,86 @@ public class VpinCreationService {
      * @throws IOException if an error occurs during Vpin creation
      */
     public VpinCreationResponse.Vpin createVpin(String accessToken, String videoUrl) throws IOException {
-        String externalApiUrl = ytInfoApiUrl + videoUrl;
-        JsonNode videoInfo = remoteExchangeService.exchangeFromRemoteServerForGet(accessToken, externalApiUrl,
-                JsonNode.class);
+        VideoMetadata videoInfo = fetchVideoInfo(accessToken, videoUrl);
+        Resource thumbnail = thumbnailPreparationService.prepare(fetchThumbnail(videoInfo));
+        return uploadVpin(accessToken, videoUrl, videoInfo, thumbnail);
+    }
 
-        String thumbnail = videoInfo.get("thumbnail").asText();
-        byte[] thumbnailBytes = downloadImage(thumbnail);
+    /**
+     * Returns the video information used to build a Vpin, from the video
+     * metadata cache unless it is missing or due for a refresh. If a refresh
+     * fails, the stale information is used.
+     *
+     * @param accessToken the access token
+     * @param videoUrl    the video URL
+     * @return the video information
+     * @throws IOException if the video information cannot be fetched
+     */
+    public VideoMetadata fetchVideoInfo(String accessToken, String videoUrl) throws IOException {
+        VideoMetadata cached = videoMetadataCache.getIfFresh(videoUrl);
+        if (cached != null) {
+            return cached;
+        }
+
+        try {
+            String externalApiUrl = ytInfoApiUrl + videoUrl;
+            VideoMetadata videoInfo = toVideoMetadata(
+                    remoteExchangeService.exchangeFromRemoteServerForGet(accessToken, externalApiUrl, JsonNode.class));
+            videoMetadataCache.put(videoUrl, videoInfo);
+            return videoInfo;
+        } catch (IOException | RuntimeException e) {
+            VideoMetadata stale = videoMetadataCache.getAnyAge(videoUrl);
+            if (stale == null) {
+                throw e;
+            }
+            log.warn("Using stale video info for {}: {}", videoUrl, e.getMessage());
+            return stale;
+        }
+    }
+
+    private static VideoMetadata toVideoMetadata(JsonNode videoInfo) throws IOException {
+        if (videoInfo == null || !videoInfo.hasNonNull("url") || !videoInfo.hasNonNull("thumbnail")) {
+            throw new IOException("Incomplete video info: " + videoInfo);
+        }
+        return new VideoMetadata(videoInfo.path("videoTitle").asText(null), videoInfo.get("url").asText(),
+                videoInfo.path("videoPlatform").asText(null), videoInfo.get("thumbnail").asText(),
+                System.currentTimeMillis());
+    }
 
+    /**
+     * Returns the thumbnail named in the video information, from the thumbnail
+     * cache when another Vpin already used it.
+     *
+     * @param videoInfo the video information
+     * @return the thumbnail
+     */
+    public Resource fetchThumbnail(VideoMetadata videoInfo) {
+        String thumbnailUrl = videoInfo.thumbnail();
+        Resource cached = thumbnailCache.get(thumbnailUrl);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] thumbnailBytes = downloadImage(thumbnailUrl);
+        return thumbnailBytes != null ? thumbnailCache.put(thumbnailUrl, thumbnailBytes) : null;
+    }
+
+    /**
+     * Uploads a new Vpin with its cover image.
+     *
+     * @param accessToken the access token
+     * @param videoUrl    the video URL
+     * @param videoInfo   the video information
+     * @param thumbnail   the cover image
+     * @return the created Vpin
+     */
+    public VpinCreationResponse.Vpin uploadVpin(String accessToken, String videoUrl, VideoMetadata videoInfo,
+            Resource thumbnail) {
         CreateVpinRequest vpinRequest = buildCreateVpinRequest(videoInfo);
 
         logVpinCreationDetails(vpinRequest, videoUrl);
 
         LinkedMultiValueMap<String, Object> request = new LinkedMultiValueMap<>();
-        request.add("coverFile", createHttpEntityForImage(thumbnailBytes, thumbnail));
+        request.add("coverFile", createHttpEntityForImage(thumbnail, videoInfo.thumbnail()));
         request.add("createVpinRequest", vpinRequest);
 
         String vpinCreationEndpoint = apiServerUrl + "/vpin";
@@ -103,12 +183,12 @@ public class VpinCreationService {
      * @param videoInfo the video information
      * @return the CreateVpinRequest object
      */
-    private CreateVpinRequest buildCreateVpinRequest(JsonNode videoInfo) {
+    private CreateVpinRequest buildCreateVpinRequest(VideoMetadata videoInfo) {
         CreateVpinRequest vpinRequest = new CreateVpinRequest();
         vpinRequest.setId(UUID.randomUUID().toString());
-        vpinRequest.setTextContent(videoInfo.get("videoTitle").asText());
-        vpinRequest.setVideoUrl(videoInfo.get("url").asText());
-        vpinRequest.setVideoPlatform(videoInfo.get("videoPlatform").asText());
+        vpinRequest.setTextContent(videoInfo.videoTitle());
+        vpinRequest.setVideoUrl(videoInfo.url());
+        vpinRequest.setVideoPlatform(videoInfo.videoPlatform());
         vpinRequest.setTags(new ArrayList<>());
         vpinRequest.setState("PUBLIC");
         vpinRequest.setTemplate("NORMAL");
@@ -130,20 +210,26 @@ public class VpinCreationService {
     }
 
     /**
-     * Creates an HttpEntity for the image upload.
+     * Creates an HttpEntity for the image upload. A thumbnail re-encoded by
+     * {@link ThumbnailPreparationService} is sent as a JPEG file, whatever the
+     * name of the downloaded original.
      *
-     * @param imageBytes the image bytes
-     * @param fileName   the file name
+     * @param image    the image
+     * @param fileName the file name of the downloaded original
      * @return the HttpEntity
      */
-    private HttpEntity<byte[]> createHttpEntityForImage(byte[] imageBytes, String fileName) {
+    private HttpEntity<Resource> createHttpEntityForImage(Resource image, String fileName) {
         MultiValueMap<String, String> fileMap = new LinkedMultiValueMap<>();
+        boolean reencoded = ThumbnailPreparationService.JPEG_FILENAME.equals(image.getFilename());
         ContentDisposition contentDisposition = ContentDisposition.builder("form-data")
                 .name("coverFile")
-                .filename(fileName)
+                .filename(reencoded ? ThumbnailPreparationService.JPEG_FILENAME : fileName)
                 .build();
         fileMap.add(HttpHeaders.CONTENT_DISPOSITION, contentDisposition.toString());
-        return new HttpEntity<>(imageBytes, fileMap);
+        if (reencoded) {
+            fileMap.add(HttpHeaders.CONTENT_TYPE, MediaType.IMAGE_JPEG_VALUE);
+        }
+        return new HttpEntity<>(image, fileMap);
     }
 
     /**
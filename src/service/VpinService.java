@@ -19,8 +19,14 @@ import com.osparks.vpin.bot.dto.*;
 import com.osparks.vpin.bot.exceptions.ActionExecuteException;
 import com.osparks.vpin.bot.models.*;
 import com.osparks.vpin.bot.util.IndexCommentPair;
+import com.osparks.vpin.bot.util.StructuredResponseParser;
 import com.osparks.vpin.bot.util.TagConverter;
+import com.osparks.vpin.bot.util.VpinCatalog;
+import com.osparks.vpin.bot.util.VpinCommentCache;
 import com.osparks.vpin.bot.util.VpinConverter;
+import com.osparks.vpin.bot.util.VpinSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
@@ -31,7 +37,6 @@ import org.springframework.web.client.RestTemplate;
 
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  * Service for handling operations related to Vpins.
@@ -41,11 +46,16 @@ import java.util.stream.IntStream;
  */
 @Service
 public class VpinService {
+    private static final Logger log = LoggerFactory.getLogger(VpinService.class);
+    private static final int TAG_PAGE_SIZE = 20;
     private final RestTemplate restTemplate;
     private final RemoteExchangeService remoteExchangeService;
     private final VpinAuthenticationService vpinAuthenticationService;
     private final OpenAIService openAIService;
     private final InterestService interestService;
+    private final StructuredResponseParser structuredResponseParser;
+    private final VpinCatalog vpinCatalog;
+    private final VpinCommentCache vpinCommentCache;
 
     @Autowired
     private SimpMessagingTemplate template;
@@ -53,14 +63,33 @@ public class VpinService {
     @Value("${vpin.server-uri}")
     private String apiStgUrl;
 
+    /*
+     * Paged comment reads use the sort, page and pageSize parameters of the
+     * /list endpoint. They are off by default until the comment endpoint is
+     * confirmed to take them; without them the whole thread is fetched in
+     * one request, as before.
+     */
+    @Value("${vpin.comments.paged:false}")
+    private boolean commentPaging;
+
+    @Value("${vpin.comments.sort:NEWEST}")
+    private String commentSort;
+
+    @Value("${vpin.comments.page-size:20}")
+    private int commentPageSize;
+
     public VpinService(RestTemplate restTemplate, RemoteExchangeService remoteExchangeService,
             VpinAuthenticationService vpinAuthenticationService, OpenAIService openAIService,
-            InterestService interestService) {
+            InterestService interestService, StructuredResponseParser structuredResponseParser,
+            VpinCatalog vpinCatalog, VpinCommentCache vpinCommentCache) {
         this.restTemplate = restTemplate;
         this.remoteExchangeService = remoteExchangeService;
         this.vpinAuthenticationService = vpinAuthenticationService;
         this.openAIService = openAIService;
         this.interestService = interestService;
+        this.structuredResponseParser = structuredResponseParser;
+        this.vpinCatalog = vpinCatalog;
+        this.vpinCommentCache = vpinCommentCache;
     }
 
     /**
@@ -87,7 +116,8 @@ public class VpinService {
     }
 
     /**
-     * Retrieves a list of Vpin models.
+     * Retrieves a list of Vpin models, from the local catalog mirror when it
+     * can serve the page.
      *
      * @param tokenResponse the OAuth2 token response
      * @param sort          the sort order
@@ -96,6 +126,44 @@ public class VpinService {
      * @return the list of Vpin models
      */
     public List<VpinModel> getVpins(OAuth2TokenResponse tokenResponse, String sort, int page, int pageSize) {
+        return getVpins(tokenResponse, sort, page, pageSize, null);
+    }
+
+    /**
+     * Retrieves a list of Vpin models as {@link #getVpins(OAuth2TokenResponse, String, int, int)}
+     * does, counting the request against the action when the mirror cannot
+     * serve the page.
+     *
+     * @param tokenResponse the OAuth2 token response
+     * @param sort          the sort order
+     * @param page          the page number
+     * @param pageSize      the page size
+     * @param context       the action to count remote calls against, or null
+     * @return the list of Vpin models
+     */
+    public List<VpinModel> getVpins(OAuth2TokenResponse tokenResponse, String sort, int page, int pageSize,
+            ActionContext context) {
+        Optional<List<VpinModel>> mirroredPage = vpinCatalog.findPage(sort, page, pageSize);
+        if (mirroredPage.isPresent()) {
+            return mirroredPage.get();
+        }
+        if (context != null) {
+            context.recordRemoteCall(ActionContext.CALL_VPIN);
+        }
+        return getVpinsFromRemote(tokenResponse, sort, page, pageSize);
+    }
+
+    /**
+     * Retrieves a list of Vpin models from the Vpin API.
+     *
+     * @param tokenResponse the OAuth2 token response
+     * @param sort          the sort order
+     * @param page          the page number
+     * @param pageSize      the page size
+     * @return the list of Vpin models
+     */
+    public List<VpinModel> getVpinsFromRemote(OAuth2TokenResponse tokenResponse, String sort, int page,
+            int pageSize) {
         VpinListResponse vpinListResponse = this.getVpinList(tokenResponse, sort, page, pageSize);
 
         if (vpinListResponse == null || vpinListResponse.getContent() == null
@@ -117,37 +185,28 @@ public class VpinService {
     }
 
     /**
-     * Retrieves information about Vpins.
+     * Renders Vpins as the numbered list used in browse prompts.
      *
      * @param vpinModels the list of Vpin models
-     * @return the list of Vpin information maps
-     */
-    public List<Map<String, Object>> getVpinInfo(List<VpinModel> vpinModels) {
-        return vpinModels.stream()
-                .map(vpin -> Map.of(
-                        "id", vpin.getId(),
-                        "textContent", vpin.getTextContent(),
-                        "tags", vpin.getTags().stream().map(TagModel::getTag).collect(Collectors.toList())))
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * Converts Vpin information to a text representation.
-     *
-     * @param vpinInfoList the list of Vpin information maps
-     * @return the text representation of Vpin information
+     * @return the text representation of the Vpins
      */
-    public String convertVpinInfoToText(List<Map<String, Object>> vpinInfoList) {
-        return IntStream.range(0, vpinInfoList.size())
-                .mapToObj(i -> {
-                    Map<String, Object> vpinInfo = vpinInfoList.get(i);
-                    String tags = ((List<String>) vpinInfo.get("tags")).stream()
-                            .map(tag -> "\"" + tag + "\"")
-                            .collect(Collectors.joining(", "));
-                    return String.format("%d. title: %s, tags: %s",
-                            i, vpinInfo.get("textContent"), tags);
-                })
-                .collect(Collectors.joining(System.lineSeparator()));
+    public String convertVpinsToText(List<VpinModel> vpinModels) {
+        StringBuilder out = new StringBuilder(vpinModels.size() * 96);
+        for (int i = 0; i < vpinModels.size(); i++) {
+            VpinModel vpin = vpinModels.get(i);
+            if (i > 0) {
+                out.append(System.lineSeparator());
+            }
+            out.append(i).append(". title: ").append(vpin.getTextContent()).append(", tags: ");
+            List<TagModel> tags = vpin.getTags();
+            for (int t = 0; tags != null && t < tags.size(); t++) {
+                if (t > 0) {
+                    out.append(", ");
+                }
+                out.append('"').append(tags.get(t).getTag()).append('"');
+            }
+        }
+        return out.toString();
     }
 
     /**
@@ -173,12 +232,24 @@ public class VpinService {
     }
 
     /**
-     * Retrieves a list of Vpins by tags.
+     * Retrieves a list of Vpins by tags, from the local catalog mirror when it is
+     * fresh and holds Vpins with the tag.
      *
      * @param tag the tag to filter Vpins by
      * @return the list of Vpins filtered by the given tag
      */
     public List<VpinModel> getVpinsByTags(String tag) {
+        if (vpinCatalog.isFresh()) {
+            List<VpinSummary> mirrored = vpinCatalog.findByTag(tag, TAG_PAGE_SIZE);
+            if (!mirrored.isEmpty()) {
+                List<VpinModel> vpins = new ArrayList<>(mirrored.size());
+                for (VpinSummary summary : mirrored) {
+                    vpins.add(summary.toModel());
+                }
+                return vpins;
+            }
+        }
+
         String url = apiStgUrl + "/list?tags=" + tag;
         OAuth2TokenResponse tokenResponse = vpinAuthenticationService.getClientToken();
         HttpHeaders headers = new HttpHeaders();
@@ -195,6 +266,39 @@ public class VpinService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Retrieves the mirrored Vpins carrying any of the bot's selected tags,
+     * newest first. Falls back to a remote lookup of a single selected tag when
+     * the catalog mirror is stale.
+     *
+     * @param botModel the bot model
+     * @param limit    the maximum number of Vpins to return
+     * @return the list of Vpins matching the bot's selected tags
+     */
+    public List<VpinModel> getVpinsForSelectedTags(BotModel botModel, int limit) {
+        List<TagModel> tagsSelected = botModel.getTagsSelected();
+        if (tagsSelected == null || tagsSelected.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (!vpinCatalog.isFresh()) {
+            List<VpinModel> vpins = getVpinsByTags(
+                    tagsSelected.get(new Random().nextInt(tagsSelected.size())).getTag());
+            return vpins.size() > limit ? vpins.subList(0, limit) : vpins;
+        }
+
+        List<String> anyOf = new ArrayList<>(tagsSelected.size());
+        for (TagModel tag : tagsSelected) {
+            anyOf.add(tag.getTag());
+        }
+        List<VpinSummary> mirrored = vpinCatalog.findByTags(Collections.emptyList(), anyOf,
+                Collections.emptyList(), limit);
+        List<VpinModel> vpins = new ArrayList<>(mirrored.size());
+        for (VpinSummary summary : mirrored) {
+            vpins.add(summary.toModel());
+        }
+        return vpins;
+    }
+
     /**
      * Retrieves a list of recommended Vpins based on a given Vpin ID.
      *
@@ -223,14 +327,91 @@ public class VpinService {
     }
 
     /**
-     * Retrieves comments for a given Vpin ID.
+     * Retrieves comments for a given Vpin ID, newest first. With
+     * {@code vpin.comments.paged} set, only the comments posted since the newest
+     * cached one are downloaded.
      *
      * @param vpinId the ID of the Vpin
      * @return the Vpin comment response
      */
     public VpinCommentResponse getComments(String vpinId) {
-        String url = apiStgUrl + "/comment/vpin/" + vpinId;
+        return getComments(vpinId, null);
+    }
+
+    /**
+     * Retrieves comments for a given Vpin ID, newest first. The cached thread is
+     * returned without a request when it already holds the reported number of
+     * comments.
+     *
+     * @param vpinId       the ID of the Vpin
+     * @param commentCount the comment count reported for the Vpin, or null if unknown
+     * @return the Vpin comment response
+     */
+    public VpinCommentResponse getComments(String vpinId, Integer commentCount) {
+        return getComments(vpinId, commentCount, null);
+    }
+
+    /**
+     * Retrieves comments for a given Vpin ID as {@link #getComments(String, Integer)}
+     * does, counting each comment page requested against the action.
+     *
+     * @param vpinId       the ID of the Vpin
+     * @param commentCount the comment count reported for the Vpin, or null if unknown
+     * @param context      the action to count remote calls against, or null
+     * @return the Vpin comment response
+     */
+    public VpinCommentResponse getComments(String vpinId, Integer commentCount, ActionContext context) {
+        Optional<List<VpinCommentResponse.CommentContent>> cached = vpinCommentCache.getIfCurrent(vpinId,
+                commentCount);
+        if (cached.isPresent()) {
+            return toCommentResponse(cached.get());
+        }
+
         OAuth2TokenResponse tokenResponse = vpinAuthenticationService.getClientToken();
+        if (!commentPaging) {
+            if (context != null) {
+                context.recordRemoteCall(ActionContext.CALL_COMMENTS);
+            }
+            VpinCommentResponse response = getCommentPage(tokenResponse, apiStgUrl + "/comment/vpin/" + vpinId);
+            List<VpinCommentResponse.CommentContent> content = response == null ? null : response.getContent();
+            return toCommentResponse(vpinCommentCache.replace(vpinId, content == null ? List.of() : content));
+        }
+
+        String newestSeenId = vpinCommentCache.getNewestCommentId(vpinId);
+        int maxPages = (vpinCommentCache.getMaxComments() + commentPageSize - 1) / commentPageSize;
+        List<VpinCommentResponse.CommentContent> newer = new ArrayList<>();
+        boolean reachedSeen = false;
+        for (int page = 0; page < maxPages && !reachedSeen; page++) {
+            if (context != null) {
+                context.recordRemoteCall(ActionContext.CALL_COMMENTS);
+            }
+            VpinCommentResponse response = getCommentPage(tokenResponse, apiStgUrl + "/comment/vpin/" + vpinId
+                    + "?sort=" + commentSort + "&page=" + page + "&pageSize=" + commentPageSize);
+            List<VpinCommentResponse.CommentContent> content = response == null ? null : response.getContent();
+            if (content == null || content.isEmpty()) {
+                break;
+            }
+            for (VpinCommentResponse.CommentContent comment : content) {
+                if (newestSeenId != null && newestSeenId.equals(comment.getId())) {
+                    reachedSeen = true;
+                    break;
+                }
+                newer.add(comment);
+            }
+            if (content.size() < commentPageSize) {
+                break;
+            }
+        }
+
+        // Without reaching the newest cached comment the gap cannot be bridged,
+        // so the pages just fetched become the whole thread.
+        List<VpinCommentResponse.CommentContent> comments = reachedSeen
+                ? vpinCommentCache.merge(vpinId, newer)
+                : vpinCommentCache.replace(vpinId, newer);
+        return toCommentResponse(comments);
+    }
+
+    private VpinCommentResponse getCommentPage(OAuth2TokenResponse tokenResponse, String url) {
         HttpHeaders headers = new HttpHeaders();
         headers.setBearerAuth(tokenResponse.getAccessToken());
         HttpEntity<String> entity = new HttpEntity<>("body", headers);
@@ -243,30 +424,83 @@ public class VpinService {
         return response.getBody();
     }
 
+    private static VpinCommentResponse toCommentResponse(List<VpinCommentResponse.CommentContent> comments) {
+        VpinCommentResponse vpinCommentResponse = new VpinCommentResponse();
+        vpinCommentResponse.setContent(comments);
+        return vpinCommentResponse;
+    }
+
     /**
-     * Generates a reply to a Vpin.
+     * Retrieves a Vpin by ID, from the local catalog mirror when it holds it.
      *
-     * @param botModel the bot model
-     * @param vpinId   the ID of the Vpin
-     * @return the generated reply
+     * @param vpinId the ID of the Vpin
+     * @return the Vpin model
      */
-    public String getVpinReply(BotModel botModel, String vpinId) {
+    public VpinModel getVpin(String vpinId) {
+        return getVpin(vpinId, null);
+    }
+
+    /**
+     * Retrieves a Vpin by ID as {@link #getVpin(String)} does, counting the
+     * request against the action when the mirror cannot answer.
+     *
+     * @param vpinId  the ID of the Vpin
+     * @param context the action to count remote calls against, or null
+     * @return the Vpin model
+     */
+    public VpinModel getVpin(String vpinId, ActionContext context) {
+        Optional<VpinSummary> mirrored = vpinCatalog.findById(vpinId);
+        if (mirrored.isPresent()) {
+            return mirrored.get().toModel();
+        }
+        if (context != null) {
+            context.recordRemoteCall(ActionContext.CALL_VPIN);
+        }
+
         String url = apiStgUrl + "/vpin/" + vpinId;
         OAuth2TokenResponse tokenResponse = vpinAuthenticationService.getClientToken();
         HttpHeaders headers = new HttpHeaders();
         headers.setBearerAuth(tokenResponse.getAccessToken());
         HttpEntity<String> entity = new HttpEntity<>("body", headers);
         ResponseEntity<VpinModel> responseVpin = restTemplate.exchange(url, HttpMethod.GET, entity, VpinModel.class);
-        VpinModel vpinModel = responseVpin.getBody();
-        String interests = interestService.getInterests(botModel);
+        return responseVpin.getBody();
+    }
+
+    /**
+     * Generates a reply to a Vpin.
+     *
+     * @param botModel the bot model
+     * @param vpinId   the ID of the Vpin
+     * @return the generated reply
+     */
+    public String getVpinReply(BotModel botModel, String vpinId) {
+        return getVpinReply(botModel, getVpin(vpinId), interestService.getInterests(botModel));
+    }
+
+    /**
+     * Generates a reply to a Vpin the caller already holds.
+     *
+     * @param botModel  the bot model
+     * @param vpinModel the Vpin model
+     * @param interests the bot's interests
+     * @return the generated reply
+     */
+    public String getVpinReply(BotModel botModel, VpinModel vpinModel, CharSequence interests) {
         assert vpinModel != null;
-        String vpinTitle = vpinModel.getTextContent();
-        String vpinTags = vpinModel.getTags().stream().map(TagModel::getTag).collect(Collectors.joining(", "));
-        String vpinInfo = "VpinModel Title: " + vpinTitle + "\n VpinModel Tags: " + vpinTags;
+        StringBuilder vpinInfo = new StringBuilder(256);
+        vpinInfo.append("VpinModel Title: ").append(vpinModel.getTextContent()).append("\n VpinModel Tags: ");
+        List<TagModel> tags = vpinModel.getTags();
+        for (int i = 0; i < tags.size(); i++) {
+            if (i > 0) {
+                vpinInfo.append(", ");
+            }
+            vpinInfo.append(tags.get(i).getTag());
+        }
 
-        OpenAIGeneralResponse response = openAIService.commentVpin(botModel, interests, vpinInfo);
-        System.out.println(response.getChoices().get(0).getMessage().getContent());
-        return response.getChoices().get(0).getMessage().getContent();
+        OpenAIGeneralResponse response = openAIService.commentVpin(botModel, interests, vpinInfo.toString());
+        log.debug("Comment answer for bot {}: {}", botModel.getId(),
+                response.getChoices().get(0).getMessage().getContent());
+        return structuredResponseParser.parseComment(response.getChoices().get(0).getMessage().getContent());
     }
 
     /**
@@ -276,10 +510,26 @@ public class VpinService {
      * @return the Vpin comment response
      */
     public VpinCommentResponse getVpinComments(VpinModel vpinModel) {
-        System.out.println(
-                "Vpin: " + vpinModel.getId() + " has commentCount of " + vpinModel.getCommentCount().toString());
-        if (vpinModel.getCommentCount() > 0) {
-            VpinCommentResponse vpinCommentResponse = this.getComments(vpinModel.getId());
+        return getVpinComments(vpinModel, null);
+    }
+
+    /**
+     * Retrieves comments for a given Vpin model, counting the comment pages
+     * requested against the action.
+     *
+     * @param vpinModel the Vpin model
+     * @param context   the action to count remote calls against, or null
+     * @return the Vpin comment response, or null if the Vpin has no comments
+     */
+    public VpinCommentResponse getVpinComments(VpinModel vpinModel, ActionContext context) {
+        Integer commentCount = vpinModel.getCommentCount();
+        System.out.println("Vpin: " + vpinModel.getId() + " has commentCount of " + commentCount);
+        // Vpins served from the catalog mirror carry no count, so the thread has to be asked for.
+        if (commentCount == null || commentCount > 0) {
+            VpinCommentResponse vpinCommentResponse = this.getComments(vpinModel.getId(), commentCount, context);
+            if (vpinCommentResponse.getContent() == null || vpinCommentResponse.getContent().isEmpty()) {
+                return null;
+            }
             System.out.println("Comments under VpinModel: " + vpinModel.getId() + "\n"
                     + new ArrayList<>(vpinCommentResponse.getContent()));
             return vpinCommentResponse;
@@ -295,44 +545,57 @@ public class VpinService {
      * @return the index and comment pair
      */
     public IndexCommentPair getReplyToVpinComment(BotModel botModel, VpinCommentResponse vpinCommentResponse) {
+        return getReplyToVpinComment(botModel, vpinCommentResponse, renderInterests(botModel));
+    }
+
+    /**
+     * Generates a reply to a comment on a Vpin, using interests the caller
+     * already rendered.
+     *
+     * @param botModel            the bot model
+     * @param vpinCommentResponse the Vpin comment response
+     * @param interests           the bot's interests
+     * @return the index and comment pair
+     */
+    public IndexCommentPair getReplyToVpinComment(BotModel botModel, VpinCommentResponse vpinCommentResponse,
+            CharSequence interests) {
         if (vpinCommentResponse != null) {
-            List<String> comments = vpinCommentResponse.getContent().stream()
-                    .map(VpinCommentResponse.CommentContent::getTextContent)
-                    .collect(Collectors.toList());
-
-            String commentString = IntStream.range(0, comments.size())
-                    .mapToObj(i -> (i + 1) + ". " + comments.get(i))
-                    .collect(Collectors.joining("\n"));
-
-            String interests = botModel.getInterests().stream().map(InterestModel::getInterest)
-                    .collect(Collectors.joining(", "));
-            OpenAIGeneralResponse response = openAIService.replyComment(botModel, interests, commentString);
-            System.out.println(response.getChoices().get(0).getMessage().getContent());
-            IndexCommentPair parsedResponse = parseResponse(response.getChoices().get(0).getMessage().getContent());
-            System.out.print("getReplyToVpinComment: IndexCommentPair.getComment() - " + parsedResponse.getComment());
-            System.out.println("getReplyToVpinComment: IndexCommentPair.getIndex() - " + parsedResponse.getIndex());
+            List<VpinCommentResponse.CommentContent> comments = vpinCommentResponse.getContent();
+            StringBuilder commentString = new StringBuilder(comments.size() * 96);
+            for (int i = 0; i < comments.size(); i++) {
+                if (i > 0) {
+                    commentString.append('\n');
+                }
+                commentString.append(i + 1).append(". ").append(comments.get(i).getTextContent());
+            }
+
+            OpenAIGeneralResponse response = openAIService.replyComment(botModel, interests,
+                    commentString.toString());
+            IndexCommentPair parsedResponse = structuredResponseParser.parseIndexedComment(
+                    response.getChoices().get(0).getMessage().getContent());
+            log.debug("Reply answer for bot {}: index {}, comment {}", botModel.getId(), parsedResponse.getIndex(),
+                    parsedResponse.getComment());
             return parsedResponse;
         }
         return null;
     }
 
     /**
-     * Parses the response to extract the index and comment.
+     * Renders the bot's interests as a comma separated list.
      *
-     * @param response the response string
-     * @return the index and comment pair
+     * @param botModel the bot model
+     * @return the interests text
      */
-    private IndexCommentPair parseResponse(String response) {
-        String[] splitResponse = response.split(" - ", 2);
-        String[] excessResponse = splitResponse[1].split("\n");
-        System.out.println("OpenAI returned response: " + response);
-        if (splitResponse.length != 2) {
-            throw new IllegalArgumentException("Invalid response format: " + response);
+    private String renderInterests(BotModel botModel) {
+        StringBuilder out = new StringBuilder(256);
+        List<InterestModel> interests = botModel.getInterests();
+        for (int i = 0; i < interests.size(); i++) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            out.append(interests.get(i).getInterest());
         }
-
-        int index = Integer.parseInt(splitResponse[0].trim()) - 1;
-        String comment = excessResponse[0].trim();
-        return new IndexCommentPair(index, comment);
+        return out.toString();
     }
 
     /**
@@ -341,15 +604,16 @@ public class VpinService {
      * @param openAIReturnedIndex the index returned by OpenAI
      * @param vpinCommentResponse the Vpin comment response
      * @return the comment ID
+     * @throws ActionExecuteException if the index is outside the comments, so no reply is made
      */
     public String getCommentId(int openAIReturnedIndex, VpinCommentResponse vpinCommentResponse) {
         List<String> commentIds = vpinCommentResponse.getContent().stream()
                 .map(VpinCommentResponse.CommentContent::getId)
                 .collect(Collectors.toList());
-        System.out.println("Comment Ids: " + commentIds.stream() + ". GPT returned index: " + openAIReturnedIndex);
+        log.debug("Comment IDs: {}, returned index: {}", commentIds, openAIReturnedIndex);
 
         if (openAIReturnedIndex < 0 || openAIReturnedIndex >= commentIds.size()) {
-            throw new IllegalArgumentException("Invalid index: " + openAIReturnedIndex);
+            throw new ActionExecuteException("Invalid comment index: " + openAIReturnedIndex);
         }
 
         return commentIds.get(openAIReturnedIndex);
@@ -391,6 +655,7 @@ public class VpinService {
         try {
             remoteExchangeService.exchangeFromRemoteServer(accessToken, url, HttpMethod.POST,
                     MediaType.APPLICATION_JSON, comment, Void.class);
+            vpinCommentCache.invalidate(vpinId);
             template.convertAndSend("/topic/botlogs", "Successfully commented on Vpin.\n");
         } catch (ActionExecuteException e) {
             throw new ActionExecuteException("Error commenting on VpinModel.");
@@ -413,6 +678,7 @@ public class VpinService {
         try {
             remoteExchangeService.exchangeFromRemoteServer(accessToken, url, HttpMethod.POST,
                     MediaType.APPLICATION_JSON, comment, Void.class);
+            vpinCommentCache.invalidateByCommentId(commentId);
         } catch (ActionExecuteException e) {
             throw new ActionExecuteException("Error replying to comment.");
         }
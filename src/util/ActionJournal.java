@@ -0,0 +1,512 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of bot interactions in memory-mapped segment files.
+ * Every record has the same {@value #RECORD_SIZE}-byte layout:
+ * <pre>
+ *   0  int   CRC32 of bytes 4..135
+ *   4  long  sequence number, starting at 1
+ *  12  long  interaction time, epoch milliseconds
+ *  20  byte  interaction type
+ *  21  3     reserved
+ *  24  37    bot ID: length byte and up to 36 ASCII bytes
+ *  61  37    Vpin ID
+ *  98  37    comment ID, length 0 if none
+ * 135  1     reserved
+ * </pre>
+ * Appends are group-committed: {@link #append} returns once a committer
+ * thread has forced the record to disk together with every other record
+ * written in the same {@code groupCommitMillis} window.
+ * <p>
+ * On open, the last segment is scanned up to the first record whose checksum
+ * or sequence number is wrong; that record and everything after it are the
+ * remains of a crash and are zeroed. A separate checkpoint file records the
+ * last sequence number a reader has consumed, and segments wholly before it
+ * can be deleted.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+public final class ActionJournal implements Closeable {
+    public static final int RECORD_SIZE = 136;
+    public static final int MAX_ID_LENGTH = 36;
+    private static final int ID_FIELD_SIZE = MAX_ID_LENGTH + 1;
+    private static final int BOT_ID_OFFSET = 24;
+    private static final int VPIN_ID_OFFSET = BOT_ID_OFFSET + ID_FIELD_SIZE;
+    private static final int COMMENT_ID_OFFSET = VPIN_ID_OFFSET + ID_FIELD_SIZE;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    /**
+     * One decoded record.
+     */
+    public record Entry(long sequence, int type, long epochMillis, String botId, String vpinId, String commentId) {
+    }
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final long groupCommitMillis;
+    private final IntConsumer commitObserver;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Object commitLock = new Object();
+    private final Thread committer;
+    private long nextSequence;
+    private long writtenSequence;
+    private volatile long durableSequence;
+    private volatile boolean closed;
+
+    /**
+     * Opens the journal in a directory, recovering its tail, and starts the
+     * committer thread.
+     *
+     * @param directory         the journal directory
+     * @param segmentRecords    records per new segment file
+     * @param groupCommitMillis how long the committer gathers records before forcing them
+     * @param commitObserver    told the number of records made durable by each commit
+     * @throws IOException if the journal cannot be opened
+     */
+    public ActionJournal(Path directory, int segmentRecords, long groupCommitMillis, IntConsumer commitObserver)
+            throws IOException {
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.groupCommitMillis = Math.max(1, groupCommitMillis);
+        this.commitObserver = commitObserver;
+        Files.createDirectories(directory);
+        recover();
+        this.committer = new Thread(this::commitLoop, "action-journal-commit");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    /**
+     * Appends a record and waits until it is on disk.
+     *
+     * @param type        the interaction type
+     * @param epochMillis the interaction time
+     * @param botId       the bot ID
+     * @param vpinId      the Vpin ID
+     * @param commentId   the comment ID, or null
+     * @return the record's sequence number
+     * @throws IllegalArgumentException if an ID is not ASCII or longer than {@value #MAX_ID_LENGTH}
+     * @throws IOException              if the journal is closed or cannot be written
+     * @throws InterruptedException     if interrupted while waiting for the commit
+     */
+    public long append(int type, long epochMillis, String botId, String vpinId, String commentId)
+            throws IOException, InterruptedException {
+        return append(type, epochMillis, botId, vpinId, commentId, null);
+    }
+
+    /**
+     * Appends a record and waits until it is on disk. The record's sequence
+     * number is passed to {@code onSequence} under the journal lock, before
+     * the record can be read back, so the caller can attach state to it that
+     * a reader will see. The callback must not block.
+     *
+     * @param type        the interaction type
+     * @param epochMillis the interaction time
+     * @param botId       the bot ID
+     * @param vpinId      the Vpin ID
+     * @param commentId   the comment ID, or null
+     * @param onSequence  receives the sequence number once it is assigned, or null
+     * @return the record's sequence number
+     * @throws IllegalArgumentException if an ID is not ASCII or longer than {@value #MAX_ID_LENGTH}
+     * @throws IOException              if the journal is closed or cannot be written
+     * @throws InterruptedException     if interrupted while waiting for the commit
+     */
+    public long append(int type, long epochMillis, String botId, String vpinId, String commentId,
+            LongConsumer onSequence) throws IOException, InterruptedException {
+        byte[] record = new byte[RECORD_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.putLong(12, epochMillis);
+        buffer.put(20, (byte) type);
+        putId(buffer, BOT_ID_OFFSET, botId);
+        putId(buffer, VPIN_ID_OFFSET, vpinId);
+        putId(buffer, COMMENT_ID_OFFSET, commentId);
+
+        long sequence;
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Action journal is closed");
+            }
+            sequence = nextSequence;
+            buffer.putLong(4, sequence);
+            buffer.putInt(0, checksum(record));
+            segmentFor(sequence).write(sequence, record);
+            if (onSequence != null) {
+                onSequence.accept(sequence);
+            }
+            nextSequence++;
+            writtenSequence = sequence;
+        }
+
+        synchronized (commitLock) {
+            while (durableSequence < sequence) {
+                if (closed) {
+                    throw new IOException("Action journal closed before record " + sequence + " was committed");
+                }
+                commitLock.wait();
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Reads committed records in sequence order.
+     *
+     * @param fromSequence the first sequence number to read
+     * @param maxRecords   the most records to return
+     * @return the records, empty if none are committed from that point
+     * @throws IOException if a committed record is damaged
+     */
+    public synchronized List<Entry> read(long fromSequence, int maxRecords) throws IOException {
+        long last = Math.min(durableSequence, fromSequence + maxRecords - 1);
+        List<Entry> entries = new ArrayList<>((int) Math.max(0, last - fromSequence + 1));
+        byte[] record = new byte[RECORD_SIZE];
+        for (long sequence = fromSequence; sequence <= last; sequence++) {
+            Map.Entry<Long, Segment> segment = segments.floorEntry(sequence);
+            if (segment == null || !segment.getValue().read(sequence, record) || !isValid(record, sequence)) {
+                throw new IOException("Action journal record " + sequence + " is damaged");
+            }
+            entries.add(decode(record));
+        }
+        return entries;
+    }
+
+    /**
+     * @return the sequence number of the last record on disk
+     */
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    /**
+     * @return the last sequence number recorded by {@link #writeCheckpoint}, or 0
+     * @throws IOException if the checkpoint file is damaged
+     */
+    public long readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() != 12) {
+            throw new IOException("Action journal checkpoint is damaged");
+        }
+        long sequence = buffer.getLong(0);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, 8);
+        if ((int) crc.getValue() != buffer.getInt(8)) {
+            throw new IOException("Action journal checkpoint is damaged");
+        }
+        return sequence;
+    }
+
+    /**
+     * Durably records that every record up to a sequence number has been
+     * consumed, and deletes the segments that hold only such records.
+     *
+     * @param sequence the last consumed sequence number
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void writeCheckpoint(long sequence) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(12);
+        buffer.putLong(0, sequence);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, 8);
+        buffer.putInt(8, (int) crc.getValue());
+
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        deleteSegmentsThrough(sequence);
+    }
+
+    /**
+     * Stops the committer after a final commit. Appends still waiting fail.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        committer.interrupt();
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        commit();
+        synchronized (commitLock) {
+            commitLock.notifyAll();
+        }
+    }
+
+    private void commitLoop() {
+        while (!closed) {
+            try {
+                Thread.sleep(groupCommitMillis);
+            } catch (InterruptedException e) {
+                if (closed) {
+                    return;
+                }
+            }
+            commit();
+        }
+    }
+
+    /**
+     * Forces everything written since the last commit and wakes the appenders
+     * waiting on it.
+     */
+    private void commit() {
+        long target;
+        List<Segment> dirty = new ArrayList<>();
+        synchronized (this) {
+            target = writtenSequence;
+            if (target <= durableSequence) {
+                return;
+            }
+            Long first = segments.floorKey(durableSequence + 1);
+            dirty.addAll(segments.subMap(first != null ? first : durableSequence + 1, true, target, true).values());
+        }
+        long from = durableSequence + 1;
+        for (Segment segment : dirty) {
+            segment.force(from, target);
+        }
+        int committed = (int) (target - durableSequence);
+        synchronized (commitLock) {
+            durableSequence = target;
+            commitLock.notifyAll();
+        }
+        commitObserver.accept(committed);
+    }
+
+    private Segment segmentFor(long sequence) throws IOException {
+        Map.Entry<Long, Segment> last = segments.lastEntry();
+        if (last != null && last.getValue().contains(sequence)) {
+            return last.getValue();
+        }
+        Segment segment = Segment.create(directory.resolve(segmentName(sequence)), sequence, segmentRecords);
+        segments.put(sequence, segment);
+        return segment;
+    }
+
+    private synchronized void deleteSegmentsThrough(long sequence) throws IOException {
+        Iterator<Map.Entry<Long, Segment>> iterator = segments.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next().getValue();
+            if (segment.lastSequence() > sequence || segment == segments.lastEntry().getValue()) {
+                return;
+            }
+            iterator.remove();
+            Files.deleteIfExists(segment.path);
+        }
+    }
+
+    /**
+     * Maps the existing segments and finds the end of the valid records.
+     */
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long firstSequence = Long.parseLong(
+                    name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            segments.put(firstSequence, Segment.open(file, firstSequence));
+        }
+
+        long checkpoint = readCheckpoint();
+        nextSequence = Math.max(checkpoint + 1, segments.isEmpty() ? 1 : segments.firstKey());
+        Map.Entry<Long, Segment> tail = segments.lastEntry();
+        if (tail != null) {
+            Segment segment = tail.getValue();
+            byte[] record = new byte[RECORD_SIZE];
+            long sequence = segment.firstSequence;
+            while (segment.contains(sequence) && segment.read(sequence, record) && isValid(record, sequence)) {
+                sequence++;
+            }
+            segment.zeroFrom(sequence);
+            nextSequence = Math.max(nextSequence, sequence);
+        }
+        writtenSequence = nextSequence - 1;
+        durableSequence = writtenSequence;
+    }
+
+    private static String segmentName(long firstSequence) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+    }
+
+    private static void putId(ByteBuffer buffer, int offset, String id) {
+        if (id == null) {
+            return;
+        }
+        byte[] bytes = id.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > MAX_ID_LENGTH || !StandardCharsets.US_ASCII.newEncoder().canEncode(id)) {
+            throw new IllegalArgumentException("ID does not fit an action journal record: " + id);
+        }
+        buffer.put(offset, (byte) bytes.length);
+        buffer.put(offset + 1, bytes);
+    }
+
+    private static String getId(ByteBuffer buffer, int offset) {
+        int length = buffer.get(offset);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset + 1, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 4, RECORD_SIZE - 4);
+        return (int) crc.getValue();
+    }
+
+    private static boolean isValid(byte[] record, long sequence) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        if (buffer.getLong(4) != sequence || buffer.getInt(0) != checksum(record)) {
+            return false;
+        }
+        for (int offset : new int[]{BOT_ID_OFFSET, VPIN_ID_OFFSET, COMMENT_ID_OFFSET}) {
+            int length = buffer.get(offset);
+            if (length < 0 || length > MAX_ID_LENGTH) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Entry decode(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        return new Entry(buffer.getLong(4), buffer.get(20), buffer.getLong(12), getId(buffer, BOT_ID_OFFSET),
+                getId(buffer, VPIN_ID_OFFSET), getId(buffer, COMMENT_ID_OFFSET));
+    }
+
+    /**
+     * One segment file, mapped whole.
+     */
+    private static final class Segment {
+        private final Path path;
+        private final long firstSequence;
+        private final int capacity;
+        private final MappedByteBuffer buffer;
+
+        private Segment(Path path, long firstSequence, int capacity, MappedByteBuffer buffer) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.capacity = capacity;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path path, long firstSequence, int records) throws IOException {
+            try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+                file.setLength((long) records * RECORD_SIZE);
+            }
+            return open(path, firstSequence);
+        }
+
+        static Segment open(Path path, long firstSequence) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                int capacity = (int) (channel.size() / RECORD_SIZE);
+                return new Segment(path, firstSequence, capacity,
+                        channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * RECORD_SIZE));
+            }
+        }
+
+        boolean contains(long sequence) {
+            return sequence >= firstSequence && sequence < firstSequence + capacity;
+        }
+
+        long lastSequence() {
+            return firstSequence + capacity - 1;
+        }
+
+        void write(long sequence, byte[] record) {
+            buffer.put(offset(sequence), record);
+        }
+
+        boolean read(long sequence, byte[] record) {
+            if (!contains(sequence)) {
+                return false;
+            }
+            buffer.get(offset(sequence), record);
+            return true;
+        }
+
+        /**
+         * Forces the records of this segment that fall in a sequence range.
+         */
+        void force(long fromSequence, long toSequence) {
+            long from = Math.max(fromSequence, firstSequence);
+            long to = Math.min(toSequence, lastSequence());
+            if (from <= to) {
+                buffer.force(offset(from), (int) (to - from + 1) * RECORD_SIZE);
+            }
+        }
+
+        void zeroFrom(long sequence) {
+            if (!contains(sequence)) {
+                return;
+            }
+            byte[] zeros = new byte[RECORD_SIZE];
+            for (long s = sequence; contains(s); s++) {
+                buffer.put(offset(s), zeros);
+            }
+            force(sequence, lastSequence());
+        }
+
+        private int offset(long sequence) {
+            return (int) (sequence - firstSequence) * RECORD_SIZE;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.util;
+
+/**
+ * Counts, for each minute of the week, how many {@link WeeklyActivityBitmap}s
+ * have it set. The counts are kept bit-sliced: plane k holds bit k of every
+ * minute's count, so adding a bitmap is a ripple-carry add on its 158 words,
+ * 64 minutes at a time, rather than 10,080 separate increments. Not
+ * thread-safe.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+public final class ActivityHistogram {
+    private static final int MAX_PLANES = 32;
+
+    private final long[][] planes = new long[MAX_PLANES][];
+    private int planeCount;
+
+    /**
+     * Adds one to the count of every minute set in the bitmap.
+     *
+     * @param bitmap the bitmap to add
+     */
+    public void add(WeeklyActivityBitmap bitmap) {
+        // Each word ripples on its own and stops at its first plane without a
+        // carry, which is two planes on average, as in a binary counter.
+        for (int i = 0; i < WeeklyActivityBitmap.WORDS; i++) {
+            long carry = bitmap.word(i);
+            for (int plane = 0; carry != 0; plane++) {
+                if (plane == planeCount) {
+                    planes[planeCount++] = new long[WeeklyActivityBitmap.WORDS];
+                }
+                long bits = planes[plane][i];
+                planes[plane][i] = bits ^ carry;
+                carry &= bits;
+            }
+        }
+    }
+
+    /**
+     * @return the count for each minute of the week, from Monday 00:00
+     */
+    public int[] counts() {
+        int[] counts = new int[WeeklyActivityBitmap.MINUTES_PER_WEEK];
+        for (int plane = 0; plane < planeCount; plane++) {
+            long[] bits = planes[plane];
+            for (int i = 0; i < bits.length; i++) {
+                long word = bits[i];
+                while (word != 0) {
+                    int minute = (i << 6) + Long.numberOfTrailingZeros(word);
+                    counts[minute] += 1 << plane;
+                    word &= word - 1;
+                }
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,259 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.util;
+
+import com.osparks.vpin.bot.models.IntervalModel;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory index of every bot's activity intervals, answering which bots are
+ * active at a time and which start within the next few minutes without a
+ * query to Neo4j.
+ * <p>
+ * The day is cut into 96 buckets of 15 minutes. Each interval is stored as one
+ * or two segments of seconds of the day, an interval that ends before it
+ * starts running past midnight into the next day, and every bucket holds the
+ * segments overlapping it, so a lookup only checks the segments of one bucket.
+ * Each segment carries a mask of the days it applies on, shifted by a day for
+ * the part of an overnight interval past midnight. Interval ends are
+ * inclusive, as in the scheduler. Not thread-safe; {@code ActiveBotService}
+ * guards it.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Component
+public class BotIntervalIndex {
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+    private static final int BUCKET_SECONDS = 15 * 60;
+    private static final int BUCKETS = SECONDS_PER_DAY / BUCKET_SECONDS;
+
+    private List<List<Segment>> activeBuckets = newBuckets();
+    private List<List<Segment>> startBuckets = newBuckets();
+    private Map<String, List<Segment>> segmentsByBot = new HashMap<>();
+
+    /**
+     * Replaces the bot's intervals.
+     *
+     * @param botId     the bot ID
+     * @param intervals the bot's intervals; null or empty removes the bot
+     * @throws IllegalArgumentException if an interval has an invalid day name,
+     *                                  leaving the index unchanged
+     */
+    public void put(String botId, List<IntervalModel> intervals) {
+        List<Segment> segments = compile(botId, intervals);
+        removeSegments(botId);
+        for (Segment segment : segments) {
+            index(segment, activeBuckets, startBuckets);
+        }
+        if (!segments.isEmpty()) {
+            segmentsByBot.put(botId, segments);
+        }
+    }
+
+    /**
+     * Replaces the whole index. The new index is built before the old one is
+     * dropped, so a failure leaves the old one in place.
+     *
+     * @param intervalsByBot every bot's intervals
+     * @throws IllegalArgumentException if an interval has an invalid day name
+     */
+    public void replaceAll(Map<String, List<IntervalModel>> intervalsByBot) {
+        Map<String, List<Segment>> compiled = new HashMap<>(intervalsByBot.size() * 2);
+        for (Map.Entry<String, List<IntervalModel>> entry : intervalsByBot.entrySet()) {
+            List<Segment> segments = compile(entry.getKey(), entry.getValue());
+            if (!segments.isEmpty()) {
+                compiled.put(entry.getKey(), segments);
+            }
+        }
+        List<List<Segment>> active = newBuckets();
+        List<List<Segment>> starts = newBuckets();
+        for (List<Segment> segments : compiled.values()) {
+            for (Segment segment : segments) {
+                index(segment, active, starts);
+            }
+        }
+        activeBuckets = active;
+        startBuckets = starts;
+        segmentsByBot = compiled;
+    }
+
+    /**
+     * @param time the date and time
+     * @return the IDs of the bots with an interval containing the time
+     */
+    public Set<String> findActiveBotIds(LocalDateTime time) {
+        int second = time.toLocalTime().toSecondOfDay();
+        int day = dayBit(time);
+        Set<String> botIds = new LinkedHashSet<>();
+        for (Segment segment : activeBuckets.get(second / BUCKET_SECONDS)) {
+            if ((segment.days() & day) != 0 && segment.contains(second)) {
+                botIds.add(segment.botId());
+            }
+        }
+        return botIds;
+    }
+
+    /**
+     * @param time    the date and time
+     * @param minutes the length of the window, at most a day
+     * @return the IDs of the bots with an interval starting after the time and
+     *         within the window, roughly in order of start
+     */
+    public Set<String> findBotIdsStartingWithin(LocalDateTime time, int minutes) {
+        int from = time.toLocalTime().toSecondOfDay();
+        int today = dayBit(time);
+        int tomorrow = dayBit(time.plusDays(1));
+        int window = Math.max(0, Math.min(minutes, SECONDS_PER_DAY / 60)) * 60;
+        Set<String> botIds = new LinkedHashSet<>();
+        int firstBucket = from / BUCKET_SECONDS;
+        int bucketCount = Math.min(BUCKETS, (from % BUCKET_SECONDS + window) / BUCKET_SECONDS + 1);
+        for (int i = 0; i < bucketCount; i++) {
+            for (Segment segment : startBuckets.get((firstBucket + i) % BUCKETS)) {
+                int untilStart = Math.floorMod(segment.intervalStart() - from, SECONDS_PER_DAY);
+                int startDay = from + untilStart < SECONDS_PER_DAY ? today : tomorrow;
+                if (untilStart > 0 && untilStart <= window && (segment.days() & startDay) != 0) {
+                    botIds.add(segment.botId());
+                }
+            }
+        }
+        return botIds;
+    }
+
+    /**
+     * @return the number of bots with at least one interval
+     */
+    public int size() {
+        return segmentsByBot.size();
+    }
+
+    private static List<Segment> compile(String botId, List<IntervalModel> intervals) {
+        if (intervals == null || intervals.isEmpty()) {
+            return List.of();
+        }
+        List<Segment> segments = new ArrayList<>(intervals.size());
+        for (IntervalModel interval : intervals) {
+            if (interval.getStartTime() == null || interval.getEndTime() == null) {
+                continue;
+            }
+            int start = interval.getStartTime().toSecondOfDay();
+            int end = interval.getEndTime().toSecondOfDay();
+            int days = WeeklyActivityBitmap.dayMask(interval.getDaysOfWeek());
+            if (start <= end) {
+                segments.add(new Segment(botId, days, start, start, end, true));
+            } else {
+                int nextDays = ((days << 1) | (days >>> 6)) & WeeklyActivityBitmap.EVERY_DAY;
+                segments.add(new Segment(botId, days, start, start, SECONDS_PER_DAY - 1, true));
+                segments.add(new Segment(botId, nextDays, start, 0, end, false));
+            }
+        }
+        return segments;
+    }
+
+    private void removeSegments(String botId) {
+        List<Segment> segments = segmentsByBot.remove(botId);
+        if (segments == null) {
+            return;
+        }
+        for (Segment segment : segments) {
+            for (int bucket = segment.from() / BUCKET_SECONDS; bucket <= segment.to() / BUCKET_SECONDS; bucket++) {
+                activeBuckets.get(bucket).remove(segment);
+            }
+            if (segment.startsInterval()) {
+                startBuckets.get(segment.intervalStart() / BUCKET_SECONDS).remove(segment);
+            }
+        }
+    }
+
+    private static void index(Segment segment, List<List<Segment>> active, List<List<Segment>> starts) {
+        for (int bucket = segment.from() / BUCKET_SECONDS; bucket <= segment.to() / BUCKET_SECONDS; bucket++) {
+            active.get(bucket).add(segment);
+        }
+        if (segment.startsInterval()) {
+            starts.get(segment.intervalStart() / BUCKET_SECONDS).add(segment);
+        }
+    }
+
+    private static int dayBit(LocalDateTime time) {
+        return 1 << (time.getDayOfWeek().getValue() - 1);
+    }
+
+    private static List<List<Segment>> newBuckets() {
+        List<List<Segment>> buckets = new ArrayList<>(BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        return buckets;
+    }
+
+    /**
+     * A run of seconds of the day within one interval. Identity matters, since
+     * two intervals of a bot may have equal bounds.
+     */
+    private static final class Segment {
+        private final String botId;
+        private final int days;
+        private final int intervalStart;
+        private final int from;
+        private final int to;
+        private final boolean startsInterval;
+
+        Segment(String botId, int days, int intervalStart, int from, int to, boolean startsInterval) {
+            this.botId = botId;
+            this.days = days;
+            this.intervalStart = intervalStart;
+            this.from = from;
+            this.to = to;
+            this.startsInterval = startsInterval;
+        }
+
+        String botId() {
+            return botId;
+        }
+
+        int days() {
+            return days;
+        }
+
+        int intervalStart() {
+            return intervalStart;
+        }
+
+        int from() {
+            return from;
+        }
+
+        int to() {
+            return to;
+        }
+
+        boolean startsInterval() {
+            return startsInterval;
+        }
+
+        boolean contains(int second) {
+            return second >= from && second <= to;
+        }
+    }
+}
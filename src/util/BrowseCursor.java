@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.util;
+
+/**
+ * Immutable position of one bot in the Vpin list it browses.
+ *
+ * @param sort          the sort order being paged
+ * @param offset        the position of the first item not yet evaluated, kept
+ *                      as an item count so that it survives page size changes
+ * @param noneStreak    consecutive pages on which nothing was selected
+ * @param pagesSinceHit pages fetched since the last selection
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+public record BrowseCursor(String sort, int offset, int noneStreak, int pagesSinceHit) {
+
+    public static BrowseCursor start(String sort) {
+        return new BrowseCursor(sort, 0, 0, 0);
+    }
+
+    /**
+     * @param pageSize the number of items per page
+     * @return the page holding the item at the offset
+     */
+    public int page(int pageSize) {
+        return offset / pageSize;
+    }
+
+    /**
+     * @param nextOffset the position just past the evaluated page
+     * @return the cursor after a page on which nothing was selected
+     */
+    public BrowseCursor missed(int nextOffset) {
+        return new BrowseCursor(sort, nextOffset, noneStreak + 1, pagesSinceHit + 1);
+    }
+
+    /**
+     * @return the cursor after a page on which a Vpin was selected
+     */
+    public BrowseCursor hit() {
+        return new BrowseCursor(sort, offset, 0, 0);
+    }
+
+    /**
+     * @return the cursor moved back to the first item, keeping the streak
+     */
+    public BrowseCursor rewound() {
+        return new BrowseCursor(sort, 0, noneStreak, pagesSinceHit);
+    }
+}
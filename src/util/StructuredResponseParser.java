@@ -0,0 +1,459 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Single-pass parser for the structured OpenAI payloads described by
+ * {@link StructuredResponseType}. It walks the response text once without
+ * building a JSON tree, only materialising the string fields it needs. When the
+ * model answers outside of JSON anyway, the legacy free-text formats are
+ * accepted so the LLM call is not wasted.
+ * <p>
+ * Every parse is counted under {@code openai.structured.parse} tagged with the
+ * prompt type and an outcome of {@code json}, {@code fallback} or
+ * {@code failure}.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Component
+public class StructuredResponseParser {
+    /**
+     * Returned by {@link #parseIndex} when the model selected nothing.
+     */
+    public static final int NO_SELECTION = -1;
+
+    private static final ThreadLocal<StringBuilder> STRING_BUFFER = ThreadLocal.withInitial(
+            () -> new StringBuilder(256));
+
+    private final Map<StructuredResponseType, Counter> jsonCounters = new EnumMap<>(StructuredResponseType.class);
+    private final Map<StructuredResponseType, Counter> fallbackCounters = new EnumMap<>(StructuredResponseType.class);
+    private final Map<StructuredResponseType, Counter> failureCounters = new EnumMap<>(StructuredResponseType.class);
+
+    public StructuredResponseParser(MeterRegistry meterRegistry) {
+        for (StructuredResponseType type : StructuredResponseType.values()) {
+            jsonCounters.put(type, counter(meterRegistry, type, "json"));
+            fallbackCounters.put(type, counter(meterRegistry, type, "fallback"));
+            failureCounters.put(type, counter(meterRegistry, type, "failure"));
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, StructuredResponseType type, String outcome) {
+        return Counter.builder("openai.structured.parse")
+                .tag("type", type.getSchemaName())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Parses a {@link StructuredResponseType#BROWSE_INDEX} payload.
+     *
+     * @param payload the message content returned by OpenAI
+     * @return the selected 0-based index, or {@link #NO_SELECTION}
+     * @throws IllegalArgumentException if no index can be read from the payload
+     */
+    public int parseIndex(CharSequence payload) {
+        StructuredResponseType type = StructuredResponseType.BROWSE_INDEX;
+        ParsedPayload parsed = new ParsedPayload();
+        if (parseObject(payload, parsed) && parsed.indexPresent) {
+            jsonCounters.get(type).increment();
+            return parsed.index;
+        }
+
+        int legacyIndex = parseLegacyIndex(payload);
+        if (legacyIndex != Integer.MIN_VALUE) {
+            fallbackCounters.get(type).increment();
+            return legacyIndex;
+        }
+        throw failure(type, payload);
+    }
+
+    /**
+     * Parses a {@link StructuredResponseType#COMMENT} payload.
+     *
+     * @param payload the message content returned by OpenAI
+     * @return the comment text
+     * @throws IllegalArgumentException if the payload is empty
+     */
+    public String parseComment(CharSequence payload) {
+        StructuredResponseType type = StructuredResponseType.COMMENT;
+        ParsedPayload parsed = new ParsedPayload();
+        if (parseObject(payload, parsed) && parsed.comment != null) {
+            jsonCounters.get(type).increment();
+            return parsed.comment;
+        }
+
+        String legacyComment = payload == null ? "" : payload.toString().trim();
+        if (!legacyComment.isEmpty() && legacyComment.charAt(0) != '{') {
+            fallbackCounters.get(type).increment();
+            return legacyComment;
+        }
+        throw failure(type, payload);
+    }
+
+    /**
+     * Parses a {@link StructuredResponseType#REPLY} payload.
+     *
+     * @param payload the message content returned by OpenAI
+     * @return the 0-based index of the comment and the reply text
+     * @throws IllegalArgumentException if the index or reply cannot be read
+     */
+    public IndexCommentPair parseIndexedComment(CharSequence payload) {
+        StructuredResponseType type = StructuredResponseType.REPLY;
+        ParsedPayload parsed = new ParsedPayload();
+        if (parseObject(payload, parsed) && parsed.indexPresent && parsed.index != NO_SELECTION
+                && parsed.comment != null) {
+            jsonCounters.get(type).increment();
+            return new IndexCommentPair(parsed.index - 1, parsed.comment);
+        }
+
+        IndexCommentPair legacyPair = parseLegacyIndexedComment(payload);
+        if (legacyPair != null) {
+            fallbackCounters.get(type).increment();
+            return legacyPair;
+        }
+        throw failure(type, payload);
+    }
+
+    /**
+     * Parses a {@link StructuredResponseType#TAG} payload.
+     *
+     * @param payload the message content returned by OpenAI
+     * @return the chosen tag, or null when the model chose none
+     * @throws IllegalArgumentException if the payload is empty
+     */
+    public String parseTag(CharSequence payload) {
+        StructuredResponseType type = StructuredResponseType.TAG;
+        ParsedPayload parsed = new ParsedPayload();
+        if (parseObject(payload, parsed) && parsed.tagPresent) {
+            jsonCounters.get(type).increment();
+            return parsed.tag == null || parsed.tag.isEmpty() ? null : parsed.tag;
+        }
+
+        String legacyTag = payload == null ? "" : payload.toString().trim();
+        if (!legacyTag.isEmpty() && legacyTag.charAt(0) != '{') {
+            fallbackCounters.get(type).increment();
+            return legacyTag.toLowerCase().startsWith("none") ? null : legacyTag.split("\n")[0].trim();
+        }
+        throw failure(type, payload);
+    }
+
+    private IllegalArgumentException failure(StructuredResponseType type, CharSequence payload) {
+        failureCounters.get(type).increment();
+        return new IllegalArgumentException("Invalid " + type.getSchemaName() + " response format: " + payload);
+    }
+
+    /**
+     * Reads the top-level object of the payload, keeping the fields we know and
+     * skipping everything else.
+     */
+    private static boolean parseObject(CharSequence s, ParsedPayload out) {
+        if (s == null) {
+            return false;
+        }
+        int len = s.length();
+        int i = 0;
+        while (i < len && s.charAt(i) != '{') {
+            i++;
+        }
+        if (i == len) {
+            return false;
+        }
+        i = skipWhitespace(s, i + 1);
+        if (i < len && s.charAt(i) == '}') {
+            return true;
+        }
+
+        while (i < len) {
+            if (s.charAt(i) != '"') {
+                return false;
+            }
+            int keyStart = i + 1;
+            int keyEnd = endOfString(s, keyStart);
+            if (keyEnd < 0) {
+                return false;
+            }
+            i = skipWhitespace(s, keyEnd + 1);
+            if (i >= len || s.charAt(i) != ':') {
+                return false;
+            }
+            i = skipWhitespace(s, i + 1);
+
+            if (regionEquals(s, keyStart, keyEnd, "index")) {
+                i = readIndex(s, i, out);
+            } else if (regionEquals(s, keyStart, keyEnd, "comment")) {
+                StringBuilder buffer = STRING_BUFFER.get();
+                i = readString(s, i, buffer);
+                out.comment = i < 0 ? null : buffer.toString().trim();
+            } else if (regionEquals(s, keyStart, keyEnd, "tag")) {
+                out.tagPresent = true;
+                if (regionStartsWith(s, i, "null")) {
+                    i += 4;
+                } else {
+                    StringBuilder buffer = STRING_BUFFER.get();
+                    i = readString(s, i, buffer);
+                    out.tag = i < 0 ? null : buffer.toString().trim();
+                }
+            } else {
+                i = skipValue(s, i);
+            }
+            if (i < 0) {
+                return false;
+            }
+
+            i = skipWhitespace(s, i);
+            if (i >= len) {
+                return false;
+            }
+            char c = s.charAt(i);
+            if (c == '}') {
+                return true;
+            }
+            if (c != ',') {
+                return false;
+            }
+            i = skipWhitespace(s, i + 1);
+        }
+        return false;
+    }
+
+    private static int readIndex(CharSequence s, int i, ParsedPayload out) {
+        int len = s.length();
+        if (regionStartsWith(s, i, "null")) {
+            out.indexPresent = true;
+            out.index = NO_SELECTION;
+            return i + 4;
+        }
+
+        boolean quoted = i < len && s.charAt(i) == '"';
+        int start = quoted ? i + 1 : i;
+        if (quoted && regionStartsWith(s, start, "none\"")) {
+            out.indexPresent = true;
+            out.index = NO_SELECTION;
+            return start + 5;
+        }
+
+        int end = start;
+        boolean negative = end < len && s.charAt(end) == '-';
+        if (negative) {
+            end++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (end < len && Character.isDigit(s.charAt(end)) && digits < 10) {
+            value = value * 10 + (s.charAt(end) - '0');
+            end++;
+            digits++;
+        }
+        if (digits == 0 || value > Integer.MAX_VALUE) {
+            return -1;
+        }
+        if (quoted) {
+            if (end >= len || s.charAt(end) != '"') {
+                return -1;
+            }
+            end++;
+        }
+        out.indexPresent = true;
+        out.index = negative ? NO_SELECTION : (int) value;
+        return end;
+    }
+
+    private static int readString(CharSequence s, int i, StringBuilder buffer) {
+        int len = s.length();
+        if (i >= len || s.charAt(i) != '"') {
+            return -1;
+        }
+        buffer.setLength(0);
+        i++;
+        while (i < len) {
+            char c = s.charAt(i++);
+            if (c == '"') {
+                return i;
+            }
+            if (c != '\\') {
+                buffer.append(c);
+                continue;
+            }
+            if (i >= len) {
+                return -1;
+            }
+            char escaped = s.charAt(i++);
+            switch (escaped) {
+                case 'n' -> buffer.append('\n');
+                case 't' -> buffer.append('\t');
+                case 'r' -> buffer.append('\r');
+                case 'b' -> buffer.append('\b');
+                case 'f' -> buffer.append('\f');
+                case 'u' -> {
+                    if (i + 4 > len) {
+                        return -1;
+                    }
+                    int code = 0;
+                    for (int k = 0; k < 4; k++) {
+                        int digit = Character.digit(s.charAt(i++), 16);
+                        if (digit < 0) {
+                            return -1;
+                        }
+                        code = (code << 4) | digit;
+                    }
+                    buffer.append((char) code);
+                }
+                default -> buffer.append(escaped);
+            }
+        }
+        return -1;
+    }
+
+    private static int skipValue(CharSequence s, int i) {
+        int len = s.length();
+        if (i >= len) {
+            return -1;
+        }
+        char first = s.charAt(i);
+        if (first == '"') {
+            int end = endOfString(s, i + 1);
+            return end < 0 ? -1 : end + 1;
+        }
+        if (first == '{' || first == '[') {
+            int depth = 0;
+            while (i < len) {
+                char c = s.charAt(i);
+                if (c == '"') {
+                    int end = endOfString(s, i + 1);
+                    if (end < 0) {
+                        return -1;
+                    }
+                    i = end + 1;
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        return i + 1;
+                    }
+                }
+                i++;
+            }
+            return -1;
+        }
+        while (i < len) {
+            char c = s.charAt(i);
+            if (c == ',' || c == '}' || c == ']' || Character.isWhitespace(c)) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int endOfString(CharSequence s, int i) {
+        int len = s.length();
+        while (i < len) {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '"') {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(CharSequence s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean regionEquals(CharSequence s, int start, int end, String expected) {
+        return end - start == expected.length() && regionStartsWith(s, start, expected);
+    }
+
+    private static boolean regionStartsWith(CharSequence s, int start, String expected) {
+        if (start + expected.length() > s.length()) {
+            return false;
+        }
+        for (int k = 0; k < expected.length(); k++) {
+            if (s.charAt(start + k) != expected.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Accepts the pre-JSON browse answers: "none" or a bare index.
+     */
+    private static int parseLegacyIndex(CharSequence payload) {
+        if (payload == null) {
+            return Integer.MIN_VALUE;
+        }
+        String trimmed = payload.toString().trim().toLowerCase();
+        if (trimmed.startsWith("none")) {
+            return NO_SELECTION;
+        }
+        int end = 0;
+        while (end < trimmed.length() && Character.isDigit(trimmed.charAt(end))) {
+            end++;
+        }
+        if (end == 0 || end > 9) {
+            return Integer.MIN_VALUE;
+        }
+        return Integer.parseInt(trimmed.substring(0, end));
+    }
+
+    /**
+     * Accepts the pre-JSON reply answers: "&lt;1-based index&gt; - &lt;reply&gt;".
+     */
+    private static IndexCommentPair parseLegacyIndexedComment(CharSequence payload) {
+        if (payload == null) {
+            return null;
+        }
+        String[] splitResponse = payload.toString().split(" - ", 2);
+        if (splitResponse.length != 2) {
+            return null;
+        }
+        try {
+            int index = Integer.parseInt(splitResponse[0].trim()) - 1;
+            String comment = splitResponse[1].split("\n")[0].trim();
+            return comment.isEmpty() ? null : new IndexCommentPair(index, comment);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static final class ParsedPayload {
+        private boolean indexPresent;
+        private int index = NO_SELECTION;
+        private String comment;
+        private boolean tagPresent;
+        private String tag;
+    }
+}
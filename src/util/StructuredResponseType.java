@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.util;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The structured payloads OpenAI is asked to return, one per prompt type. Each
+ * constant carries the strict JSON schema sent as the request's response_format.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+public enum StructuredResponseType {
+    /**
+     * {"index": 0-based position in the listed Vpins, or null when none fit}
+     */
+    BROWSE_INDEX("browse_index", Map.of(
+            "index", Map.of("type", List.of("integer", "null")))),
+    /**
+     * {"comment": text of the comment to post}
+     */
+    COMMENT("comment", Map.of(
+            "comment", Map.of("type", "string"))),
+    /**
+     * {"index": 1-based number of the comment replied to, "comment": reply text}
+     */
+    REPLY("reply", Map.of(
+            "index", Map.of("type", "integer", "minimum", 1),
+            "comment", Map.of("type", "string"))),
+    /**
+     * {"tag": one of the listed tags, or null when none fit}
+     */
+    TAG("tag", Map.of(
+            "tag", Map.of("type", List.of("string", "null"))));
+
+    private final String schemaName;
+    private final Map<String, Object> responseFormat;
+
+    StructuredResponseType(String schemaName, Map<String, Object> properties) {
+        this.schemaName = schemaName;
+        this.responseFormat = Map.of(
+                "type", "json_schema",
+                "json_schema", Map.of(
+                        "name", schemaName,
+                        "strict", true,
+                        "schema", Map.of(
+                                "type", "object",
+                                "properties", properties,
+                                "required", List.copyOf(properties.keySet()),
+                                "additionalProperties", false)));
+    }
+
+    public String getSchemaName() {
+        return schemaName;
+    }
+
+    public Map<String, Object> getResponseFormat() {
+        return responseFormat;
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps interned tag IDs to {@link CompressedBitmap}s of Vpin ordinals, and
+ * answers AND / OR / NOT queries over several tags. Not thread-safe; the
+ * owning {@link VpinCatalog} guards it.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+public final class TagIndex {
+    private final Map<String, Integer> idsByTag = new HashMap<>();
+    private final List<String> tagsById = new ArrayList<>();
+    private final List<CompressedBitmap> ordinalsById = new ArrayList<>();
+    private final CompressedBitmap allOrdinals = new CompressedBitmap();
+
+    /**
+     * Returns the canonical instance of a tag, registering it on first use.
+     *
+     * @param tag the tag
+     * @return the interned tag
+     */
+    public String intern(String tag) {
+        return tagsById.get(idOf(tag, true));
+    }
+
+    /**
+     * Records that the Vpin with the given ordinal carries the tags.
+     *
+     * @param ordinal the Vpin ordinal
+     * @param tags    the Vpin's tags
+     */
+    public void add(int ordinal, String[] tags) {
+        allOrdinals.add(ordinal);
+        for (String tag : tags) {
+            ordinalsById.get(idOf(tag, true)).add(ordinal);
+        }
+    }
+
+    /**
+     * Forgets that the Vpin with the given ordinal carries the tags.
+     *
+     * @param ordinal the Vpin ordinal
+     * @param tags    the tags previously added for the Vpin
+     */
+    public void remove(int ordinal, String[] tags) {
+        for (String tag : tags) {
+            int id = idOf(tag, false);
+            if (id >= 0) {
+                ordinalsById.get(id).remove(ordinal);
+            }
+        }
+    }
+
+    /**
+     * Finds the Vpins that carry every tag of {@code allOf}, at least one tag of
+     * {@code anyOf} and no tag of {@code noneOf}. Empty collections do not
+     * constrain the result.
+     *
+     * @param allOf  tags that must all be present
+     * @param anyOf  tags of which at least one must be present
+     * @param noneOf tags that must be absent
+     * @return the matching Vpin ordinals
+     */
+    public CompressedBitmap query(Collection<String> allOf, Collection<String> anyOf, Collection<String> noneOf) {
+        CompressedBitmap result = null;
+        boolean shared = false;
+        for (String tag : allOf) {
+            int id = idOf(tag, false);
+            if (id < 0) {
+                return new CompressedBitmap();
+            }
+            shared = result == null;
+            result = shared ? ordinalsById.get(id) : CompressedBitmap.and(result, ordinalsById.get(id));
+        }
+
+        if (!anyOf.isEmpty()) {
+            CompressedBitmap union = new CompressedBitmap();
+            for (String tag : anyOf) {
+                int id = idOf(tag, false);
+                if (id >= 0) {
+                    union = CompressedBitmap.or(union, ordinalsById.get(id));
+                }
+            }
+            result = result == null ? union : CompressedBitmap.and(result, union);
+            shared = false;
+        }
+
+        if (result == null) {
+            result = allOrdinals;
+            shared = true;
+        }
+        for (String tag : noneOf) {
+            int id = idOf(tag, false);
+            if (id >= 0) {
+                result = CompressedBitmap.andNot(result, ordinalsById.get(id));
+                shared = false;
+            }
+        }
+        return shared ? result.copy() : result;
+    }
+
+    /**
+     * @return the number of distinct tags
+     */
+    public int tagCount() {
+        return tagsById.size();
+    }
+
+    private int idOf(String tag, boolean register) {
+        Integer id = idsByTag.get(tag);
+        if (id != null) {
+            return id;
+        }
+        if (!register) {
+            return -1;
+        }
+        id = tagsById.size();
+        idsByTag.put(tag, id);
+        tagsById.add(tag);
+        ordinalsById.add(new CompressedBitmap());
+        return id;
+    }
+}
@@ -0,0 +1,289 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local disk cache of video thumbnails. Files are named by the SHA-256 of their
+ * content, so thumbnails served under several URLs are stored once, and an
+ * index file maps each thumbnail URL to its content hash. Reads are
+ * memory-mapped and handed to the upload without copying. Files are evicted
+ * least recently used once {@code vpin.thumbnails.cache.max-bytes} is exceeded.
+ * <p>
+ * Disk errors never fail a Vpin creation: the cache logs them and the caller
+ * downloads or uploads the bytes it already has.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Component
+public class ThumbnailCache {
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailCache.class);
+    private static final String CONTENT_SUFFIX = ".img";
+    private static final String INDEX_FILE = "urls.idx";
+
+    private final Path directory;
+    private final Path indexPath;
+    private final long maxBytes;
+    private final Map<String, String> hashByUrl = new HashMap<>();
+    private final LinkedHashMap<String, Long> sizeByHash = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+    private int indexLines;
+    private boolean enabled;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter bytesSavedCounter;
+
+    public ThumbnailCache(MeterRegistry meterRegistry,
+            @Value("${vpin.thumbnails.cache.dir:${java.io.tmpdir}/vpin-thumbnails}") String directory,
+            @Value("${vpin.thumbnails.cache.max-bytes:268435456}") long maxBytes) {
+        this.directory = Paths.get(directory);
+        this.indexPath = this.directory.resolve(INDEX_FILE);
+        this.maxBytes = maxBytes;
+        this.hitCounter = lookupCounter(meterRegistry, "hit");
+        this.missCounter = lookupCounter(meterRegistry, "miss");
+        this.bytesSavedCounter = Counter.builder("thumbnails.cache.bytes.saved")
+                .description("Thumbnail bytes served from disk instead of downloaded")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("thumbnails.cache.bytes", this, ThumbnailCache::getTotalBytes)
+                .description("Thumbnail bytes stored on disk")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        try {
+            load();
+            enabled = true;
+        } catch (IOException e) {
+            log.error("Error opening thumbnail cache, thumbnails will not be cached: ", e);
+        }
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("thumbnails.cache")
+                .description("Thumbnail reads by cache outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached thumbnail for a URL.
+     *
+     * @param url the thumbnail URL
+     * @return the mapped thumbnail, or null if it is not cached
+     */
+    public Resource get(String url) {
+        String hash;
+        long size;
+        synchronized (this) {
+            hash = enabled ? hashByUrl.get(url) : null;
+            Long storedSize = hash != null ? sizeByHash.get(hash) : null;
+            if (storedSize == null) {
+                missCounter.increment();
+                return null;
+            }
+            size = storedSize;
+        }
+
+        try {
+            Resource resource = MappedFileResource.map(contentPath(hash), url);
+            hitCounter.increment();
+            bytesSavedCounter.increment(size);
+            return resource;
+        } catch (IOException e) {
+            log.error("Error reading cached thumbnail " + hash + ": ", e);
+            synchronized (this) {
+                remove(hash);
+            }
+            missCounter.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Stores a downloaded thumbnail and returns it mapped from disk.
+     *
+     * @param url   the thumbnail URL
+     * @param bytes the thumbnail bytes
+     * @return the stored thumbnail, or the given bytes if it could not be stored
+     */
+    public Resource put(String url, byte[] bytes) {
+        if (!enabled) {
+            return new ByteArrayResource(bytes);
+        }
+        String hash = sha256Hex(bytes);
+        Path target = contentPath(hash);
+        try {
+            boolean stored;
+            synchronized (this) {
+                stored = sizeByHash.containsKey(hash);
+            }
+            if (!stored) {
+                Path temp = Files.createTempFile(directory, hash, ".tmp");
+                Files.write(temp, bytes);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            synchronized (this) {
+                if (!sizeByHash.containsKey(hash)) {
+                    sizeByHash.put(hash, (long) bytes.length);
+                    totalBytes += bytes.length;
+                }
+                if (!hash.equals(hashByUrl.put(url, hash))) {
+                    appendIndex(url, hash);
+                }
+                evict(hash);
+            }
+            return MappedFileResource.map(target, url);
+        } catch (IOException e) {
+            log.error("Error caching thumbnail " + url + ": ", e);
+            return new ByteArrayResource(bytes);
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Removes least recently used files until the cache fits, keeping the file
+     * just written.
+     */
+    private void evict(String keepHash) throws IOException {
+        Iterator<Map.Entry<String, Long>> iterator = sizeByHash.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            if (eldest.getKey().equals(keepHash)) {
+                continue;
+            }
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            hashByUrl.values().removeIf(eldest.getKey()::equals);
+            Files.deleteIfExists(contentPath(eldest.getKey()));
+        }
+        if (indexLines > 2 * hashByUrl.size() + 1024) {
+            writeIndex();
+        }
+    }
+
+    private void remove(String hash) {
+        Long size = sizeByHash.remove(hash);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        hashByUrl.values().removeIf(hash::equals);
+    }
+
+    /**
+     * Rebuilds the in-memory index from the directory. Content files are
+     * ordered oldest first, URLs whose content is gone are dropped, and the
+     * index file is rewritten without them.
+     */
+    private synchronized void load() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> contentFiles = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(CONTENT_SUFFIX)) {
+                    contentFiles.add(file);
+                }
+            }
+        }
+        contentFiles.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+        for (Path file : contentFiles) {
+            String name = file.getFileName().toString();
+            long size = Files.size(file);
+            sizeByHash.put(name.substring(0, name.length() - CONTENT_SUFFIX.length()), size);
+            totalBytes += size;
+        }
+
+        if (Files.exists(indexPath)) {
+            for (String line : Files.readAllLines(indexPath, StandardCharsets.UTF_8)) {
+                int tab = line.indexOf('\t');
+                if (tab > 0 && sizeByHash.containsKey(line.substring(0, tab))) {
+                    hashByUrl.put(line.substring(tab + 1), line.substring(0, tab));
+                }
+            }
+        }
+        evict(null);
+        writeIndex();
+    }
+
+    private void writeIndex() throws IOException {
+        Path temp = Files.createTempFile(directory, INDEX_FILE, ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> entry : hashByUrl.entrySet()) {
+                writer.write(entry.getValue() + '\t' + entry.getKey() + '\n');
+            }
+        }
+        Files.move(temp, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        indexLines = hashByUrl.size();
+    }
+
+    private void appendIndex(String url, String hash) throws IOException {
+        Files.writeString(indexPath, hash + '\t' + url + '\n', StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        indexLines++;
+    }
+
+    private Path contentPath(String hash) {
+        return directory.resolve(hash + CONTENT_SUFFIX);
+    }
+
+    private static String sha256Hex(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
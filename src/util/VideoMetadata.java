@@ -0,0 +1,32 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.util;
+
+/**
+ * The fields of a yt-info API response that Vpin creation uses.
+ *
+ * @param videoTitle      the video title, used as the Vpin text
+ * @param url             the canonical video URL
+ * @param videoPlatform   the video platform
+ * @param thumbnail       the thumbnail URL
+ * @param fetchedAtMillis when the information was fetched
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+public record VideoMetadata(String videoTitle, String url, String videoPlatform, String thumbnail,
+                            long fetchedAtMillis) {
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Durable cache of yt-info API results, keyed by {@link VideoUrlNormalizer}
+ * key, so a video looked up by one bot or by a failed attempt is not looked
+ * up again. Entries older than {@code vpin.video-metadata.cache.ttl-ms} are
+ * refreshed on their next use. Once {@code vpin.video-metadata.cache.max-entries}
+ * is reached, the least recently used entry is evicted.
+ * <p>
+ * The file is a header followed by variable-length binary records: the key,
+ * the fetch time and the four fields, strings written with
+ * {@link DataOutputStream#writeUTF}. New entries are appended; the file is
+ * rewritten with only the live entries on startup, and a torn record at the
+ * end is dropped.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Component
+public class VideoMetadataCache {
+    private static final Logger log = LoggerFactory.getLogger(VideoMetadataCache.class);
+    private static final int MAGIC = 0x564d4331;
+    private static final int VERSION = 1;
+
+    private final Map<String, VideoMetadata> entries;
+    private final Path file;
+    private final long ttlMillis;
+    private boolean persistent;
+    private final Counter hitCounter;
+    private final Counter staleCounter;
+    private final Counter missCounter;
+
+    public VideoMetadataCache(MeterRegistry meterRegistry,
+            @Value("${vpin.video-metadata.cache.file:${java.io.tmpdir}/vpin-video-metadata.bin}") String file,
+            @Value("${vpin.video-metadata.cache.ttl-ms:604800000}") long ttlMillis,
+            @Value("${vpin.video-metadata.cache.max-entries:50000}") int maxEntries) {
+        this.file = Paths.get(file);
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(Math.min(maxEntries, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VideoMetadata> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hitCounter = lookupCounter(meterRegistry, "hit");
+        this.staleCounter = lookupCounter(meterRegistry, "stale");
+        this.missCounter = lookupCounter(meterRegistry, "miss");
+        Gauge.builder("video.metadata.cache.size", this, VideoMetadataCache::size)
+                .description("Videos with cached yt-info metadata")
+                .register(meterRegistry);
+
+        try {
+            load();
+            persistent = true;
+        } catch (IOException e) {
+            log.error("Error opening video metadata cache, entries will not be persisted: ", e);
+        }
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("video.metadata.cache")
+                .description("Video metadata reads by cache outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached metadata while it is within its TTL.
+     *
+     * @param videoUrl the video URL, in any form
+     * @return the metadata, or null if it is missing or due for a refresh
+     */
+    public VideoMetadata getIfFresh(String videoUrl) {
+        VideoMetadata metadata = getAnyAge(videoUrl);
+        if (metadata == null) {
+            missCounter.increment();
+            return null;
+        }
+        if (System.currentTimeMillis() - metadata.fetchedAtMillis() > ttlMillis) {
+            staleCounter.increment();
+            return null;
+        }
+        hitCounter.increment();
+        return metadata;
+    }
+
+    /**
+     * Returns the cached metadata regardless of age, for use when a refresh
+     * fails.
+     *
+     * @param videoUrl the video URL, in any form
+     * @return the metadata, or null if the video was never looked up
+     */
+    public VideoMetadata getAnyAge(String videoUrl) {
+        String key = VideoUrlNormalizer.normalize(videoUrl);
+        if (key == null) {
+            return null;
+        }
+        synchronized (this) {
+            return entries.get(key);
+        }
+    }
+
+    /**
+     * Caches metadata fetched for a video.
+     *
+     * @param videoUrl the video URL it was fetched for
+     * @param metadata the metadata
+     */
+    public void put(String videoUrl, VideoMetadata metadata) {
+        String key = VideoUrlNormalizer.normalize(videoUrl);
+        if (key == null) {
+            return;
+        }
+        synchronized (this) {
+            entries.put(key, metadata);
+        }
+        if (persistent) {
+            append(key, metadata);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void append(String key, VideoMetadata metadata) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+            writeRecord(out, key, metadata);
+        } catch (IOException e) {
+            log.error("Error persisting video metadata: ", e);
+        }
+    }
+
+    /**
+     * Reads the file, keeping the newest unexpired record per key, and
+     * rewrites it with only those records.
+     */
+    private synchronized void load() throws IOException {
+        if (Files.exists(file)) {
+            long now = System.currentTimeMillis();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    log.warn("Ignoring video metadata cache with unknown format: {}", file);
+                } else {
+                    while (true) {
+                        String key = in.readUTF();
+                        VideoMetadata metadata = readMetadata(in);
+                        if (now - metadata.fetchedAtMillis() <= ttlMillis) {
+                            entries.put(key, metadata);
+                        } else {
+                            entries.remove(key);
+                        }
+                    }
+                }
+            } catch (EOFException e) {
+                // End of file, or a record torn by a crash while appending.
+            }
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (Map.Entry<String, VideoMetadata> entry : entries.entrySet()) {
+                writeRecord(out, entry.getKey(), entry.getValue());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeRecord(DataOutputStream out, String key, VideoMetadata metadata) throws IOException {
+        out.writeUTF(key);
+        out.writeLong(metadata.fetchedAtMillis());
+        writeNullable(out, metadata.videoTitle());
+        writeNullable(out, metadata.url());
+        writeNullable(out, metadata.videoPlatform());
+        writeNullable(out, metadata.thumbnail());
+    }
+
+    private static VideoMetadata readMetadata(DataInputStream in) throws IOException {
+        long fetchedAtMillis = in.readLong();
+        return new VideoMetadata(readNullable(in), readNullable(in), readNullable(in), readNullable(in),
+                fetchedAtMillis);
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.util;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reduces the many URL forms of one video to a single key. YouTube watch,
+ * short-link, shorts, embed and mobile URLs become {@code youtube:<id>}; other
+ * URLs lose their scheme, {@code www.}, fragment, tracking parameters and
+ * trailing slash, and their host is lower-cased.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+public final class VideoUrlNormalizer {
+    private static final Pattern YOUTUBE_ID = Pattern.compile(
+            "(?:youtube\\.com/(?:watch\\?(?:.*&)?v=|shorts/|embed/|live/|v/)|youtu\\.be/)([A-Za-z0-9_-]{11})");
+
+    private VideoUrlNormalizer() {
+    }
+
+    /**
+     * @param videoUrl the video URL as posted
+     * @return the normalized key, or null if the URL is blank
+     */
+    public static String normalize(String videoUrl) {
+        if (videoUrl == null || videoUrl.isBlank()) {
+            return null;
+        }
+        String trimmed = videoUrl.trim();
+        Matcher youtube = YOUTUBE_ID.matcher(trimmed);
+        if (youtube.find()) {
+            return "youtube:" + youtube.group(1);
+        }
+
+        try {
+            URI uri = new URI(trimmed.contains("://") ? trimmed : "https://" + trimmed);
+            if (uri.getHost() == null) {
+                return trimmed;
+            }
+            String host = uri.getHost().toLowerCase(Locale.ROOT);
+            if (host.startsWith("www.")) {
+                host = host.substring(4);
+            } else if (host.startsWith("m.")) {
+                host = host.substring(2);
+            }
+            String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+            if (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            String query = stripTracking(uri.getRawQuery());
+            return host + path + (query.isEmpty() ? "" : "?" + query);
+        } catch (URISyntaxException e) {
+            return trimmed;
+        }
+    }
+
+    private static String stripTracking(String query) {
+        if (query == null) {
+            return "";
+        }
+        StringBuilder kept = new StringBuilder();
+        for (String param : query.split("&")) {
+            if (param.isEmpty() || param.startsWith("utm_") || param.startsWith("si=")
+                    || param.startsWith("feature=") || param.startsWith("fbclid=")) {
+                continue;
+            }
+            if (kept.length() > 0) {
+                kept.append('&');
+            }
+            kept.append(param);
+        }
+        return kept.toString();
+    }
+}
@@ -0,0 +1,330 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.util;
+
+import com.osparks.vpin.bot.models.VpinModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process mirror of the Vpin catalog, indexed by ID, tag and recency. It is
+ * filled by {@code VpinCatalogSyncService} and read before the Vpin API is
+ * called. Every Vpin gets a stable ordinal on first insert, which is what the
+ * {@link TagIndex} bitmaps hold.
+ * <p>
+ * Like and comment counts change after a Vpin is mirrored, so models built
+ * from the mirror leave them unset rather than serve stale values.
+ * <p>
+ * Pages by recency are served from an array of the Vpins newest first, built
+ * on the first read after a change, so a page costs its own length rather
+ * than its offset.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Component
+public class VpinCatalog {
+    private static final Comparator<VpinSummary> NEWEST_FIRST = Comparator
+            .comparingLong(VpinSummary::createdAtMillis).reversed()
+            .thenComparing(VpinSummary::id);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ordinalsById = new HashMap<>();
+    private TagIndex tagIndex = new TagIndex();
+    private final TreeSet<VpinSummary> byRecency = new TreeSet<>(NEWEST_FIRST);
+    private VpinSummary[] byOrdinal = new VpinSummary[1024];
+    private int size;
+    // Rebuilt under the read lock, which excludes writers, and dropped by them.
+    private volatile VpinSummary[] newestFirst;
+
+    private final String recencySort;
+    private final long maxStalenessMillis;
+    private volatile long lastSyncedAtMillis;
+
+    public VpinCatalog(@Value("${vpin.mirror.sort:NEWEST}") String recencySort,
+            @Value("${vpin.mirror.max-staleness-ms:900000}") long maxStalenessMillis) {
+        this.recencySort = recencySort;
+        this.maxStalenessMillis = maxStalenessMillis;
+    }
+
+    /**
+     * Inserts or replaces Vpins in the catalog.
+     *
+     * @param summaries the Vpins to store
+     * @return the number of Vpins that were not in the catalog before
+     */
+    public int upsertAll(Collection<VpinSummary> summaries) {
+        int added = 0;
+        lock.writeLock().lock();
+        try {
+            for (VpinSummary summary : summaries) {
+                if (upsert(summary)) {
+                    added++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return added;
+    }
+
+    /**
+     * Replaces the whole catalog, dropping every Vpin not in {@code summaries}.
+     *
+     * @param summaries the Vpins to store
+     * @return the number of Vpins stored
+     */
+    public int replaceAll(Collection<VpinSummary> summaries) {
+        lock.writeLock().lock();
+        try {
+            ordinalsById.clear();
+            tagIndex = new TagIndex();
+            byRecency.clear();
+            byOrdinal = new VpinSummary[1024];
+            size = 0;
+            newestFirst = null;
+            for (VpinSummary summary : summaries) {
+                upsert(summary);
+            }
+            return size;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean upsert(VpinSummary summary) {
+        newestFirst = null;
+        String[] tags = summary.tags();
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = tagIndex.intern(tags[i]);
+        }
+
+        Integer ordinal = ordinalsById.get(summary.id());
+        boolean added = ordinal == null;
+        if (!added) {
+            VpinSummary previous = byOrdinal[ordinal];
+            byRecency.remove(previous);
+            tagIndex.remove(ordinal, previous.tags());
+        } else {
+            ordinal = size++;
+            if (ordinal == byOrdinal.length) {
+                byOrdinal = Arrays.copyOf(byOrdinal, byOrdinal.length * 2);
+            }
+            ordinalsById.put(summary.id(), ordinal);
+        }
+
+        byOrdinal[ordinal] = summary;
+        byRecency.add(summary);
+        tagIndex.add(ordinal, tags);
+        return added;
+    }
+
+    /**
+     * Looks up a Vpin by ID.
+     *
+     * @param vpinId the Vpin ID
+     * @return the Vpin, if mirrored
+     */
+    public Optional<VpinSummary> findById(String vpinId) {
+        lock.readLock().lock();
+        try {
+            Integer ordinal = ordinalsById.get(vpinId);
+            return ordinal == null ? Optional.empty() : Optional.of(byOrdinal[ordinal]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lists the mirrored Vpins carrying a tag, newest first.
+     *
+     * @param tag   the tag
+     * @param limit the maximum number of Vpins to return
+     * @return the matching Vpins
+     */
+    public List<VpinSummary> findByTag(String tag, int limit) {
+        return findByTags(List.of(tag), List.of(), List.of(), limit);
+    }
+
+    /**
+     * Lists the mirrored Vpins matching a tag query, newest first. Empty tag
+     * collections do not constrain the result.
+     *
+     * @param allOf  tags that must all be present
+     * @param anyOf  tags of which at least one must be present
+     * @param noneOf tags that must be absent
+     * @param limit  the maximum number of Vpins to return
+     * @return the matching Vpins
+     */
+    public List<VpinSummary> findByTags(Collection<String> allOf, Collection<String> anyOf,
+            Collection<String> noneOf, int limit) {
+        lock.readLock().lock();
+        try {
+            CompressedBitmap ordinals = tagIndex.query(allOf, anyOf, noneOf);
+            List<VpinSummary> result = new ArrayList<>(Math.min(ordinals.cardinality(), 1024));
+            ordinals.forEach(ordinal -> result.add(byOrdinal[ordinal]));
+            result.sort(NEWEST_FIRST);
+            return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the mirrored Vpins matching a tag query.
+     *
+     * @param allOf  tags that must all be present
+     * @param anyOf  tags of which at least one must be present
+     * @param noneOf tags that must be absent
+     * @return the number of matching Vpins
+     */
+    public int countByTags(Collection<String> allOf, Collection<String> anyOf, Collection<String> noneOf) {
+        lock.readLock().lock();
+        try {
+            return tagIndex.query(allOf, anyOf, noneOf).cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lists a page of the mirrored Vpins, newest first.
+     *
+     * @param offset the number of Vpins to skip
+     * @param limit  the maximum number of Vpins to return
+     * @return the Vpins on the page
+     */
+    public List<VpinSummary> findNewest(int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            VpinSummary[] sorted = newestFirst();
+            int from = Math.min(Math.max(offset, 0), sorted.length);
+            int to = (int) Math.min((long) from + Math.max(limit, 0), sorted.length);
+            return new ArrayList<>(Arrays.asList(sorted).subList(from, to));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return every mirrored Vpin, newest first
+     */
+    public List<VpinSummary> findAll() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(Arrays.asList(newestFirst()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the Vpins newest first; the caller holds the read lock
+     */
+    private VpinSummary[] newestFirst() {
+        VpinSummary[] sorted = newestFirst;
+        if (sorted == null) {
+            sorted = byRecency.toArray(new VpinSummary[0]);
+            newestFirst = sorted;
+        }
+        return sorted;
+    }
+
+    /**
+     * Serves a page of Vpins when the mirror can answer it on its own: the
+     * requested sort is the mirror's recency sort, the mirror is fresh, and the
+     * page lies inside the mirrored range.
+     *
+     * @param sort     the sort order requested from the Vpin API
+     * @param page     the page number
+     * @param pageSize the page size
+     * @return the page, or empty if the Vpin API has to be asked
+     */
+    public Optional<List<VpinModel>> findPage(String sort, int page, int pageSize) {
+        if (!recencySort.equalsIgnoreCase(sort) || !isFresh() || (long) (page + 1) * pageSize > size()) {
+            return Optional.empty();
+        }
+        List<VpinModel> models = new ArrayList<>(pageSize);
+        for (VpinSummary summary : findNewest(page * pageSize, pageSize)) {
+            models.add(summary.toModel());
+        }
+        return Optional.of(models);
+    }
+
+    /**
+     * @return the creation time of the newest mirrored Vpin, 0 if empty
+     */
+    public long getNewestCreatedAtMillis() {
+        lock.readLock().lock();
+        try {
+            return byRecency.isEmpty() ? 0L : byRecency.first().createdAtMillis();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return whether the Vpin ID is mirrored
+     */
+    public boolean contains(String vpinId) {
+        lock.readLock().lock();
+        try {
+            return ordinalsById.containsKey(vpinId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return whether the last sync finished within the staleness limit
+     */
+    public boolean isFresh() {
+        return lastSyncedAtMillis > 0 && System.currentTimeMillis() - lastSyncedAtMillis <= maxStalenessMillis;
+    }
+
+    public String getRecencySort() {
+        return recencySort;
+    }
+
+    public long getLastSyncedAtMillis() {
+        return lastSyncedAtMillis;
+    }
+
+    public void markSynced(long syncedAtMillis) {
+        this.lastSyncedAtMillis = syncedAtMillis;
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.util;
+
+import com.osparks.vpin.bot.dto.VpinCommentResponse.CommentContent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Per-Vpin cache of comment threads, newest comment first. Each entry records
+ * the newest comment seen so that {@code VpinService} only has to page through
+ * the comments posted since. Entries are evicted least recently used once
+ * {@code vpin.comments.cache.max-vpins} is reached, and each thread keeps at
+ * most its newest {@code vpin.comments.cache.max-comments} comments. A thread
+ * that reached that cap is served from the cache until its TTL runs out even
+ * if the Vpin reports more comments.
+ * <p>
+ * Our own writes mark the entry dirty rather than dropping it, which forces the
+ * next read to fetch the newer comments but keeps the rest of the thread.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+@Component
+public class VpinCommentCache {
+    private final Map<String, Entry> entries;
+    private final Map<String, String> vpinIdByCommentId = new HashMap<>();
+    private final long ttlMillis;
+    private final int maxComments;
+    private final Counter hitCounter;
+    private final Counter incrementalCounter;
+    private final Counter missCounter;
+    private final Counter fetchedCounter;
+
+    public VpinCommentCache(MeterRegistry meterRegistry,
+            @Value("${vpin.comments.cache.max-vpins:2048}") int maxVpins,
+            @Value("${vpin.comments.cache.ttl-ms:600000}") long ttlMillis,
+            @Value("${vpin.comments.cache.max-comments:200}") int maxComments) {
+        this.ttlMillis = ttlMillis;
+        this.maxComments = Math.max(1, maxComments);
+        this.entries = new LinkedHashMap<>(Math.min(maxVpins, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maxVpins) {
+                    return false;
+                }
+                unindex(eldest.getValue().comments);
+                return true;
+            }
+        };
+
+        this.hitCounter = lookupCounter(meterRegistry, "hit");
+        this.incrementalCounter = lookupCounter(meterRegistry, "incremental");
+        this.missCounter = lookupCounter(meterRegistry, "miss");
+        this.fetchedCounter = Counter.builder("vpin.comments.fetched")
+                .description("Comments downloaded from the Vpin API")
+                .register(meterRegistry);
+        Gauge.builder("vpin.comments.cache.size", this, VpinCommentCache::size)
+                .description("Vpins with a cached comment thread")
+                .register(meterRegistry);
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("vpin.comments.cache")
+                .description("Comment thread reads by cache outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached thread when it can be served without asking the Vpin
+     * API: the entry is clean, within its TTL, and holds at least the number of
+     * comments the Vpin reports.
+     *
+     * @param vpinId       the Vpin ID
+     * @param commentCount the comment count reported for the Vpin, or null if unknown
+     * @return the cached comments, newest first
+     */
+    public synchronized Optional<List<CommentContent>> getIfCurrent(String vpinId, Integer commentCount) {
+        Entry entry = entries.get(vpinId);
+        if (entry == null || entry.dirty || System.currentTimeMillis() - entry.fetchedAtMillis > ttlMillis
+                || commentCount == null
+                || (commentCount > entry.comments.size() && entry.comments.size() < maxComments)) {
+            return Optional.empty();
+        }
+        hitCounter.increment();
+        return Optional.of(entry.comments);
+    }
+
+    /**
+     * @return the most comments kept per Vpin, so fetching more is wasted
+     */
+    public int getMaxComments() {
+        return maxComments;
+    }
+
+    /**
+     * @param vpinId the Vpin ID
+     * @return the ID of the newest cached comment, or null if nothing is cached
+     */
+    public synchronized String getNewestCommentId(String vpinId) {
+        Entry entry = entries.get(vpinId);
+        return entry == null || entry.comments.isEmpty() ? null : entry.comments.get(0).getId();
+    }
+
+    /**
+     * Prepends comments fetched since the newest cached one.
+     *
+     * @param vpinId the Vpin ID
+     * @param newer  the new comments, newest first
+     * @return the merged thread, newest first
+     */
+    public synchronized List<CommentContent> merge(String vpinId, List<CommentContent> newer) {
+        Entry entry = entries.get(vpinId);
+        if (entry == null) {
+            return replace(vpinId, newer);
+        }
+        incrementalCounter.increment();
+        fetchedCounter.increment(newer.size());
+        List<CommentContent> merged;
+        if (newer.isEmpty()) {
+            merged = entry.comments;
+        } else {
+            List<CommentContent> combined = new ArrayList<>(newer.size() + entry.comments.size());
+            combined.addAll(newer);
+            combined.addAll(entry.comments);
+            merged = store(vpinId, entry.comments, combined);
+        }
+        entries.put(vpinId, new Entry(merged, System.currentTimeMillis()));
+        return merged;
+    }
+
+    /**
+     * Replaces the cached thread with a full fetch.
+     *
+     * @param vpinId   the Vpin ID
+     * @param comments the comments, newest first
+     * @return the cached thread, newest first
+     */
+    public synchronized List<CommentContent> replace(String vpinId, List<CommentContent> comments) {
+        missCounter.increment();
+        fetchedCounter.increment(comments.size());
+        Entry entry = entries.get(vpinId);
+        List<CommentContent> copy = store(vpinId, entry == null ? List.of() : entry.comments,
+                new ArrayList<>(comments));
+        entries.put(vpinId, new Entry(copy, System.currentTimeMillis()));
+        return copy;
+    }
+
+    /**
+     * Marks a Vpin's thread as out of date after we posted a comment on it.
+     *
+     * @param vpinId the Vpin ID
+     */
+    public synchronized void invalidate(String vpinId) {
+        Entry entry = entries.get(vpinId);
+        if (entry != null) {
+            entry.dirty = true;
+        }
+    }
+
+    /**
+     * Marks the thread containing a comment as out of date after we replied to
+     * the comment.
+     *
+     * @param commentId the comment ID
+     */
+    public synchronized void invalidateByCommentId(String commentId) {
+        String vpinId = vpinIdByCommentId.get(commentId);
+        if (vpinId != null) {
+            invalidate(vpinId);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Trims a new thread to the newest {@code maxComments} comments and moves
+     * the comment index from the old thread to it.
+     */
+    private List<CommentContent> store(String vpinId, List<CommentContent> previous, List<CommentContent> comments) {
+        unindex(previous);
+        List<CommentContent> kept = Collections.unmodifiableList(comments.size() > maxComments
+                ? new ArrayList<>(comments.subList(0, maxComments)) : comments);
+        for (CommentContent comment : kept) {
+            if (comment.getId() != null) {
+                vpinIdByCommentId.put(comment.getId(), vpinId);
+            }
+        }
+        return kept;
+    }
+
+    private void unindex(List<CommentContent> comments) {
+        for (CommentContent comment : comments) {
+            if (comment.getId() != null) {
+                vpinIdByCommentId.remove(comment.getId());
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final List<CommentContent> comments;
+        private final long fetchedAtMillis;
+        private boolean dirty;
+
+        private Entry(List<CommentContent> comments, long fetchedAtMillis) {
+            this.comments = comments;
+            this.fetchedAtMillis = fetchedAtMillis;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Packs a set of Vpin IDs into a small byte array. The IDs are sorted and
+ * front coded, each one stored as the length of the prefix it shares with the
+ * previous ID followed by the rest of its UTF-8 bytes, and the result is
+ * deflated. The first byte is the format version.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+public final class VpinIdCodec {
+    private static final byte FORMAT_VERSION = 1;
+
+    private VpinIdCodec() {
+    }
+
+    /**
+     * @param vpinIds the Vpin IDs; duplicates and nulls are dropped
+     * @return the encoded IDs
+     */
+    public static byte[] encode(Collection<String> vpinIds) {
+        TreeSet<String> sorted = new TreeSet<>();
+        for (String vpinId : vpinIds) {
+            if (vpinId != null) {
+                sorted.add(vpinId);
+            }
+        }
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        writeVarInt(raw, sorted.size());
+        byte[] previous = new byte[0];
+        for (String vpinId : sorted) {
+            byte[] bytes = vpinId.getBytes(StandardCharsets.UTF_8);
+            int shared = 0;
+            int limit = Math.min(previous.length, bytes.length);
+            while (shared < limit && previous[shared] == bytes[shared]) {
+                shared++;
+            }
+            writeVarInt(raw, shared);
+            writeVarInt(raw, bytes.length - shared);
+            raw.write(bytes, shared, bytes.length - shared);
+            previous = bytes;
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw.toByteArray());
+            deflater.finish();
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream(raw.size() / 2 + 16);
+            encoded.write(FORMAT_VERSION);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                encoded.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return encoded.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @param encoded IDs from {@link #encode}, or null
+     * @return the Vpin IDs in sorted order
+     * @throws IllegalArgumentException if the bytes are not a supported encoding
+     */
+    public static List<String> decode(byte[] encoded) {
+        if (encoded == null || encoded.length == 0) {
+            return new ArrayList<>();
+        }
+        if (encoded[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported Vpin ID encoding: " + encoded[0]);
+        }
+        byte[] raw = inflate(encoded);
+        int[] position = {0};
+        int count = readVarInt(raw, position);
+        List<String> vpinIds = new ArrayList<>(count);
+        byte[] previous = new byte[0];
+        for (int i = 0; i < count; i++) {
+            int shared = readVarInt(raw, position);
+            int suffix = readVarInt(raw, position);
+            if (shared > previous.length || position[0] + suffix > raw.length) {
+                throw new IllegalArgumentException("Corrupt Vpin ID encoding");
+            }
+            byte[] bytes = new byte[shared + suffix];
+            System.arraycopy(previous, 0, bytes, 0, shared);
+            System.arraycopy(raw, position[0], bytes, shared, suffix);
+            position[0] += suffix;
+            vpinIds.add(new String(bytes, StandardCharsets.UTF_8));
+            previous = bytes;
+        }
+        return vpinIds;
+    }
+
+    private static byte[] inflate(byte[] encoded) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(encoded, 1, encoded.length - 1);
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(encoded.length * 3);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated Vpin ID encoding");
+                }
+                raw.write(buffer, 0, n);
+            }
+            return raw.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt Vpin ID encoding", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(byte[] raw, int[] position) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (position[0] >= raw.length) {
+                throw new IllegalArgumentException("Truncated Vpin ID encoding");
+            }
+            byte b = raw[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupt Vpin ID encoding");
+    }
+}
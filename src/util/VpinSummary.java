@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.util;
+
+import com.osparks.vpin.bot.models.TagModel;
+import com.osparks.vpin.bot.models.VpinModel;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact, immutable copy of the Vpin fields the bots read, as held by the
+ * {@link VpinCatalog}.
+ *
+ * @param id             the Vpin ID
+ * @param textContent    the Vpin title
+ * @param createdAt      the creation timestamp as returned by the Vpin API
+ * @param createdAtMillis the creation timestamp in epoch milliseconds, 0 if unparseable
+ * @param videoUrl       the video URL
+ * @param videoPlatform  the video platform
+ * @param likeCount      the like count as of the sync that mirrored the Vpin
+ * @param commentCount   the comment count as of the sync that mirrored the Vpin
+ * @param tags           the tag names, interned by the catalog
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+public record VpinSummary(String id, String textContent, String createdAt, long createdAtMillis, String videoUrl,
+        String videoPlatform, int likeCount, int commentCount, String[] tags) {
+
+    /**
+     * Copies a Vpin model into a summary.
+     *
+     * @param vpin the Vpin model
+     * @return the summary
+     */
+    public static VpinSummary fromModel(VpinModel vpin) {
+        List<TagModel> tagModels = vpin.getTags();
+        String[] tags = new String[tagModels == null ? 0 : tagModels.size()];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = tagModels.get(i).getTag();
+        }
+        return new VpinSummary(vpin.getId(), vpin.getTextContent(), vpin.getCreatedAt(),
+                parseCreatedAt(vpin.getCreatedAt()), vpin.getVideoUrl(), vpin.getVideoPlatform(),
+                vpin.getLikeCount() == null ? 0 : vpin.getLikeCount(),
+                vpin.getCommentCount() == null ? 0 : vpin.getCommentCount(), tags);
+    }
+
+    /**
+     * Rebuilds a Vpin model from this summary. The like and comment counts are
+     * left unset, since they are only as current as the sync that mirrored
+     * the Vpin.
+     *
+     * @return a new Vpin model
+     */
+    public VpinModel toModel() {
+        VpinModel vpin = new VpinModel();
+        vpin.setId(id);
+        vpin.setTextContent(textContent);
+        vpin.setCreatedAt(createdAt);
+        vpin.setVideoUrl(videoUrl);
+        vpin.setVideoPlatform(videoPlatform);
+        List<TagModel> tagModels = new ArrayList<>(tags.length);
+        for (String tag : tags) {
+            TagModel tagModel = new TagModel();
+            tagModel.setTag(tag);
+            tagModels.add(tagModel);
+        }
+        vpin.setTags(tagModels);
+        return vpin;
+    }
+
+    /**
+     * Parses the creation timestamp formats the Vpin API has been seen to
+     * return.
+     *
+     * @param createdAt the timestamp text
+     * @return epoch milliseconds, or 0 if the text cannot be parsed
+     */
+    public static long parseCreatedAt(String createdAt) {
+        if (createdAt == null || createdAt.isEmpty()) {
+            return 0L;
+        }
+        try {
+            return OffsetDateTime.parse(createdAt).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+            // fall through to the zone-less formats
+        }
+        try {
+            return Instant.parse(createdAt).toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+            // fall through to local date-time
+        }
+        try {
+            return LocalDateTime.parse(createdAt).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2023 Osparks AMG Inc. All rights reserved.
+ * <p>
+ * All information and code contained herein is the property of Osparks AMG Inc.
+ * <p>
+ * Permission is granted to view this material for personal use only.
+ * <p>
+ * Any unauthorized modification, publication, distribution, sublicensing, or sale of this
+ * material without written permission from Osparks AMG Inc. is strictly prohibited.
+ * <p>
+ * Employers who have received this software through a job application process
+ * are granted full access to view, modify, distribute, and use the software for
+ * evaluation purposes only.
+ */
+
+package com.osparks.vpin.bot.util;
+
+import com.osparks.vpin.bot.models.IntervalModel;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One bot's weekly schedule as a bitmap of the 10,080 minutes of the week,
+ * Monday 00:00 first. A minute is set when one of the bot's intervals covers
+ * it. An interval covers the minutes from the one its start falls in to the
+ * one its end falls in, inclusive. An interval that ends before it starts
+ * runs past midnight into the next day, and Sunday night runs into Monday.
+ * Not thread-safe; compiled bitmaps are not changed afterwards.
+ *
+ * @Author Christopher Leu (
+ *         <a href= "mailto:chrisleu9@gmail.com">chrisleu9@gmail.com</a>)
+ */
+public final class WeeklyActivityBitmap {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+    public static final int WORDS = (MINUTES_PER_WEEK + 63) / 64;
+    /** Day mask with a bit for every day of the week, Monday the lowest. */
+    public static final int EVERY_DAY = 0x7F;
+
+    private final long[] words = new long[WORDS];
+
+    /**
+     * @param intervals the bot's intervals, or null
+     * @return the bitmap of the minutes the intervals cover
+     */
+    public static WeeklyActivityBitmap compile(List<IntervalModel> intervals) {
+        WeeklyActivityBitmap bitmap = new WeeklyActivityBitmap();
+        if (intervals != null) {
+            for (IntervalModel interval : intervals) {
+                if (interval.getStartTime() != null && interval.getEndTime() != null) {
+                    bitmap.add(interval.getStartTime(), interval.getEndTime(), dayMask(interval.getDaysOfWeek()));
+                }
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * @param daysOfWeek day names such as "MONDAY"; null or empty means every day
+     * @return a mask with bit {@code DayOfWeek.getValue() - 1} set for each day
+     * @throws IllegalArgumentException if a name is not a day of the week
+     */
+    public static int dayMask(List<String> daysOfWeek) {
+        if (daysOfWeek == null || daysOfWeek.isEmpty()) {
+            return EVERY_DAY;
+        }
+        int mask = 0;
+        for (String day : daysOfWeek) {
+            mask |= 1 << (DayOfWeek.valueOf(day.trim().toUpperCase(Locale.ROOT)).getValue() - 1);
+        }
+        return mask;
+    }
+
+    /**
+     * @param dateTime the date and time
+     * @return the minute of the week, from 0 at Monday 00:00
+     */
+    public static int minuteOfWeek(LocalDateTime dateTime) {
+        return (dateTime.getDayOfWeek().getValue() - 1) * MINUTES_PER_DAY
+                + dateTime.getHour() * 60 + dateTime.getMinute();
+    }
+
+    /**
+     * Marks the minutes of an interval on each day in the mask.
+     *
+     * @param start   the start time
+     * @param end     the end time, before the start for an overnight interval
+     * @param dayMask the days the interval starts on
+     */
+    public void add(LocalTime start, LocalTime end, int dayMask) {
+        int from = start.getHour() * 60 + start.getMinute();
+        int to = end.getHour() * 60 + end.getMinute();
+        if (end.isBefore(start)) {
+            to += MINUTES_PER_DAY;
+        }
+        for (int day = 0; day < 7; day++) {
+            if ((dayMask & (1 << day)) != 0) {
+                setRange(day * MINUTES_PER_DAY + from, day * MINUTES_PER_DAY + to);
+            }
+        }
+    }
+
+    /**
+     * @param minuteOfWeek the minute of the week
+     * @return whether the minute is set
+     */
+    public boolean isActive(int minuteOfWeek) {
+        return (words[minuteOfWeek >>> 6] & (1L << minuteOfWeek)) != 0;
+    }
+
+    /**
+     * @param dateTime the date and time
+     * @return whether the minute containing the time is set
+     */
+    public boolean isActive(LocalDateTime dateTime) {
+        return isActive(minuteOfWeek(dateTime));
+    }
+
+    /**
+     * @param index the word index, below {@link #WORDS}
+     * @return 64 minutes of the week, the lowest minute in the lowest bit
+     */
+    public long word(int index) {
+        return words[index];
+    }
+
+    /**
+     * @return the number of active minutes in the week
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private void setRange(int from, int to) {
+        if (to >= MINUTES_PER_WEEK) {
+            setRange(0, to - MINUTES_PER_WEEK);
+            to = MINUTES_PER_WEEK - 1;
+        }
+        int firstWord = from >>> 6;
+        int lastWord = to >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> (63 - (to & 63));
+        if (firstWord == lastWord) {
+            words[firstWord] |= firstMask & lastMask;
+            return;
+        }
+        words[firstWord] |= firstMask;
+        for (int i = firstWord + 1; i < lastWord; i++) {
+            words[i] = -1L;
+        }
+        words[lastWord] |= lastMask;
+    }
+}